@@ -1,35 +1,258 @@
 package weatherproc;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * Weather data processor optimized for processing billion-record files.
- * Requires Java 21 or higher.
+ * Requires Java 22 or higher.
+ *
+ * The file is memory-mapped and split into newline-aligned ranges that are parsed in
+ * parallel into per-worker maps. Temperatures are decoded branch-free from a single
+ * 8-byte word (SWAR) into an int of tenths; min/max are aggregated as ints and sums as
+ * longs, so the mean is bit-for-bit reproducible whatever the parallelism.
  *
  * Run with: java --enable-preview -XX:+UseParallelGC -Xms4g -Xmx4g WeatherProcessor input.txt
+ *
+ * While a file is processed, progress is published on the platform MBean server as
+ * {@value #MBEAN_NAME} so long runs can be watched in JConsole or VisualVM.
  */
 public class WeatherProcessor {
+
+    /** Name under which the progress MXBean is registered */
+    static final String MBEAN_NAME = "weatherproc:type=WeatherProcessor,name=Progress";
+
+    /**
+     * Fixed-point statistics (tenths of a degree) for one station, confined to one worker until merged.
+     */
     private static class StationStats {
-        private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
-        private double sum = 0.0;
-        private final AtomicInteger count = new AtomicInteger(0);
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        private long sum = 0;
+        private long count = 0;
+
+        void update(int tenths) {
+            min = Math.min(min, tenths);
+            max = Math.max(max, tenths);
+            sum += tenths;
+            count++;
+        }
+
+        StationStats merge(StationStats other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            return this;
+        }
 
-        synchronized void update(double temp) {
-            min = Math.min(min, temp);
-            max = Math.max(max, temp);
-            sum += temp;
-            count.incrementAndGet();
+        double getMin() {
+            return min / 10.0;
+        }
+
+        double getMax() {
+            return max / 10.0;
         }
 
         double getAverage() {
-            return sum / count.get();
+            return sum / 10.0 / count;
+        }
+    }
+
+    /**
+     * Live progress of a run, exposed over JMX.
+     */
+    public interface ProgressMXBean {
+        /** @return size of the input file in bytes */
+        long getTotalBytes();
+
+        /** @return bytes processed so far */
+        long getBytesProcessed();
+
+        /** @return rows processed so far, including comments and rows with parse errors */
+        long getRowsProcessed();
+
+        /** @return average rows per second since the start of the run */
+        double getRowsPerSecond();
+
+        /** @return number of distinct stations seen so far */
+        int getDistinctStations();
+
+        /** @return rows that could not be parsed and were skipped */
+        long getParseErrors();
+
+        /** @return rows processed by each worker thread, keyed by thread name */
+        Map<String, Long> getWorkerRows();
+
+        /** @return seconds since the run started */
+        double getElapsedSeconds();
+
+        /** @return estimated seconds until the run completes, or -1 if not yet known */
+        double getEstimatedSecondsRemaining();
+
+        /** @return seconds since the byte count last changed, for stall detection */
+        double getSecondsSinceProgress();
+    }
+
+    /**
+     * Progress counters for one worker thread. Only the owning thread writes the fields,
+     * using opaque stores so the hot path pays no fences; readers see reasonably current
+     * values and totals are only summed when an attribute is read.
+     */
+    private static final class WorkerCounters {
+        private static final VarHandle BYTES;
+        private static final VarHandle ROWS;
+        private static final VarHandle ERRORS;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                BYTES = lookup.findVarHandle(WorkerCounters.class, "bytes", long.class);
+                ROWS = lookup.findVarHandle(WorkerCounters.class, "rows", long.class);
+                ERRORS = lookup.findVarHandle(WorkerCounters.class, "errors", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final String worker = Thread.currentThread().getName();
+        private long bytes;
+        private long rows;
+        private long errors;
+
+        void row(long length) {
+            BYTES.setOpaque(this, bytes + length);
+            ROWS.setOpaque(this, rows + 1);
+        }
+
+        void error() {
+            ERRORS.setOpaque(this, errors + 1);
+        }
+
+        long bytes() {
+            return (long) BYTES.getOpaque(this);
+        }
+
+        long rows() {
+            return (long) ROWS.getOpaque(this);
+        }
+
+        long errors() {
+            return (long) ERRORS.getOpaque(this);
+        }
+    }
+
+    /**
+     * MXBean implementation. Each worker thread registers its own {@link WorkerCounters}
+     * on first use; all aggregation happens in the getters.
+     */
+    static final class Progress implements ProgressMXBean {
+        private final long totalBytes;
+        private final Set<String> stations;
+        private final long startNanos = System.nanoTime();
+        private final Queue<WorkerCounters> workers = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<WorkerCounters> current = ThreadLocal.withInitial(() -> {
+            WorkerCounters counters = new WorkerCounters();
+            workers.add(counters);
+            return counters;
+        });
+        private long lastBytes = -1;
+        private long lastChangeNanos = startNanos;
+
+        Progress(long totalBytes, Set<String> stations) {
+            this.totalBytes = totalBytes;
+            this.stations = stations;
+        }
+
+        WorkerCounters counters() {
+            return current.get();
+        }
+
+        @Override
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public long getBytesProcessed() {
+            return workers.stream().mapToLong(WorkerCounters::bytes).sum();
+        }
+
+        @Override
+        public long getRowsProcessed() {
+            return workers.stream().mapToLong(WorkerCounters::rows).sum();
+        }
+
+        @Override
+        public double getRowsPerSecond() {
+            double elapsed = getElapsedSeconds();
+            return elapsed > 0 ? getRowsProcessed() / elapsed : 0;
+        }
+
+        @Override
+        public int getDistinctStations() {
+            return stations.size();
+        }
+
+        @Override
+        public long getParseErrors() {
+            return workers.stream().mapToLong(WorkerCounters::errors).sum();
+        }
+
+        @Override
+        public Map<String, Long> getWorkerRows() {
+            Map<String, Long> rows = new TreeMap<>();
+            workers.forEach(w -> rows.merge(w.worker, w.rows(), Long::sum));
+            return rows;
+        }
+
+        @Override
+        public double getElapsedSeconds() {
+            return (System.nanoTime() - startNanos) / 1e9;
+        }
+
+        @Override
+        public double getEstimatedSecondsRemaining() {
+            long processed = getBytesProcessed();
+            if (processed == 0) {
+                return -1;
+            }
+            return getElapsedSeconds() * Math.max(0, totalBytes - processed) / processed;
+        }
+
+        @Override
+        public synchronized double getSecondsSinceProgress() {
+            long processed = getBytesProcessed();
+            long now = System.nanoTime();
+            if (processed != lastBytes) {
+                lastBytes = processed;
+                lastChangeNanos = now;
+            }
+            return (now - lastChangeNanos) / (double) TimeUnit.SECONDS.toNanos(1);
         }
     }
 
@@ -39,10 +262,19 @@ public class WeatherProcessor {
             System.exit(1);
         }
 
-        ConcurrentHashMap<String, StationStats> stations = new ConcurrentHashMap<>();
+        try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
 
-        try {
-            processFile(args[0], stations);
+            Set<String> distinctStations = ConcurrentHashMap.newKeySet();
+            Progress progress = new Progress(file.byteSize(), distinctStations);
+            ObjectName name = register(progress);
+            Map<String, StationStats> stations;
+            try {
+                stations = processFile(file, distinctStations, progress);
+            } finally {
+                unregister(name);
+            }
             printResults(stations);
         } catch (IOException e) {
             System.err.println("Error processing file: " + e.getMessage());
@@ -50,37 +282,326 @@ public class WeatherProcessor {
         }
     }
 
-    private static void processFile(String filename, ConcurrentHashMap<String, StationStats> stations)
-            throws IOException {
-        try (BufferedReader reader = new BufferedReader(
-                new FileReader(filename), 1024 * 1024)) { // 1MB buffer
+    /**
+     * Registers the progress MXBean, replacing one left by an earlier run in this JVM.
+     *
+     * @return the registered name, or null if JMX registration failed (processing continues without it)
+     */
+    private static ObjectName register(Progress progress) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(progress, name);
+            return name;
+        } catch (JMException e) {
+            System.err.println("Progress MBean not available: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+            // Already gone
+        }
+    }
+
+    private static Map<String, StationStats> processFile(MemorySegment file, Set<String> distinctStations,
+                                                         Progress progress) {
+        List<long[]> ranges = new ArrayList<>();
+        long size = file.byteSize();
+        int parts = Runtime.getRuntime().availableProcessors() * 4;
+        long start = 0;
+        for (int i = 1; i <= parts && start < size; i++) {
+            long end = Math.max(start, size * i / parts);
+            while (end > 0 && end < size && file.get(ValueLayout.JAVA_BYTE, end - 1) != '\n') {
+                end++;
+            }
+            if (end > start) {
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+        }
+
+        return ranges.parallelStream()
+                .map(range -> processRange(file, range[0], range[1], distinctStations, progress))
+                .collect(HashMap::new, WeatherProcessor::mergeInto, WeatherProcessor::mergeInto);
+    }
+
+    private static void mergeInto(Map<String, StationStats> target, Map<String, StationStats> partial) {
+        partial.forEach((station, stats) -> target.merge(station, stats, StationStats::merge));
+    }
+
+    /**
+     * Parses the lines in [start, end) of the file into a table private to the calling worker.
+     */
+    private static Map<String, StationStats> processRange(MemorySegment file, long start, long end,
+                                                          Set<String> distinctStations, Progress progress) {
+        WorkerCounters counters = progress.counters();
+        StationTable stations = new StationTable(distinctStations);
+        long pos = start;
+        while (pos < end) {
+            long lineStart = pos;
+            if (file.get(ValueLayout.JAVA_BYTE, pos) == '#') {
+                pos = nextLine(file, pos, end);
+                counters.row(pos - lineStart);
+                continue;
+            }
+
+            long separator = pos;
+            int hash = 0;
+            byte b;
+            while (separator < end && (b = file.get(ValueLayout.JAVA_BYTE, separator)) != ';' && b != '\n') {
+                hash = 31 * hash + b;
+                separator++;
+            }
+            if (separator == end || file.get(ValueLayout.JAVA_BYTE, separator) != ';') {
+                pos = nextLine(file, separator, end);
+                counters.row(pos - lineStart);
+                counters.error();
+                continue;
+            }
+
+            long number = separator + 1;
+            long word = readWord(file, number, end);
+            int dot = Long.numberOfTrailingZeros(~word & DOT_BITS);
+            long lineEnd = number + (dot >>> 3) + 2;
+            int tenths;
+            if (isPlainNumber(word, dot) && isLineEnd(file, lineEnd, end)) {
+                tenths = parseTenths(word, dot);
+                pos = lineEnd + 1;
+            } else {
+                // Not of the form -?d?d.d: take the slow path
+                pos = nextLine(file, number, end);
+                tenths = parseSlow(file, number, pos - 1);
+                if (tenths == Integer.MIN_VALUE) {
+                    counters.row(pos - lineStart);
+                    counters.error();
+                    continue;
+                }
+            }
+            counters.row(Math.min(pos, end) - lineStart);
+
+            stations.get(file, lineStart, separator, hash).update(tenths);
+        }
+        return stations.toMap();
+    }
+
+    /**
+     * Open-addressing table of one worker's stations keyed by their UTF-8 name bytes. A row's name
+     * is compared in place against the mapped file; the name is copied and decoded into a String
+     * only when the station is first inserted.
+     */
+    private static final class StationTable {
+        private final Set<String> distinctStations;
+        private MemorySegment[] names = new MemorySegment[1024];
+        private int[] hashes = new int[1024];
+        private String[] keys = new String[1024];
+        private StationStats[] values = new StationStats[1024];
+        private int size;
+
+        StationTable(Set<String> distinctStations) {
+            this.distinctStations = distinctStations;
+        }
+
+        /**
+         * @return the statistics of the station named by [start, end) of the file, created if new
+         */
+        StationStats get(MemorySegment file, long start, long end, int hash) {
+            long length = end - start;
+            int mask = names.length - 1;
+            int slot = spread(hash) & mask;
+            for (MemorySegment name; (name = names[slot]) != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && name.byteSize() == length
+                        && MemorySegment.mismatch(name, 0, length, file, start, end) == -1) {
+                    return values[slot];
+                }
+            }
+
+            byte[] bytes = file.asSlice(start, length).toArray(ValueLayout.JAVA_BYTE);
+            String station = new String(bytes, StandardCharsets.UTF_8);
+            StationStats stats = new StationStats();
+            names[slot] = MemorySegment.ofArray(bytes);
+            hashes[slot] = hash;
+            keys[slot] = station;
+            values[slot] = stats;
+            distinctStations.add(station);
+            if (++size * 2 > names.length) {
+                grow();
+            }
+            return stats;
+        }
+
+        private void grow() {
+            MemorySegment[] oldNames = names;
+            int[] oldHashes = hashes;
+            String[] oldKeys = keys;
+            StationStats[] oldValues = values;
+            names = new MemorySegment[oldNames.length * 2];
+            hashes = new int[names.length];
+            keys = new String[names.length];
+            values = new StationStats[names.length];
+            int mask = names.length - 1;
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    int slot = spread(oldHashes[i]) & mask;
+                    while (names[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    names[slot] = oldNames[i];
+                    hashes[slot] = oldHashes[i];
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * @return the statistics keyed by station name; byte sequences that decode to the same
+         *         name (malformed UTF-8) are combined
+         */
+        Map<String, StationStats> toMap() {
+            Map<String, StationStats> map = new HashMap<>(size * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    map.merge(keys[i], values[i], StationStats::merge);
+                }
+            }
+            return map;
+        }
+    }
+
+    /** Bit 4 of the bytes at index 1..3 of the word: set for digits, clear for '.' */
+    private static final long DOT_BITS = 0x10101000L;
+
+    private static final ValueLayout.OfLong WORD =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Reads 8 bytes starting at {@code pos} as a little-endian word, padding with zeros past {@code end}.
+     */
+    private static long readWord(MemorySegment file, long pos, long end) {
+        if (pos + Long.BYTES <= file.byteSize()) {
+            return file.get(WORD, pos);
+        }
+        long word = 0;
+        for (int i = 0; pos + i < end && i < Long.BYTES; i++) {
+            word |= (file.get(ValueLayout.JAVA_BYTE, pos + i) & 0xFFL) << (i * 8);
+        }
+        return word;
+    }
+
+    private static final long HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+    private static final long ZEROS = 0x3030303030303030L;
+    private static final long SIXES = 0x0606060606060606L;
 
-            reader.lines()
-                    .parallel()
-                    .filter(line -> !line.startsWith("#"))
-                    .forEach(line -> {
-                        String[] parts = line.split(";");
-                        if (parts.length == 2) {
-                            String station = parts[0];
-                            double temp = Double.parseDouble(parts[1]);
+    /**
+     * Checks, without parsing, that the word starts with a number of the form {@code -?d?d.d}: the
+     * candidate decimal point is a '.', the first byte is '-' or a digit, and every other byte up to
+     * the one after the point is a digit.
+     *
+     * @param word the 8 bytes starting at the temperature
+     * @param dot  the bit position found for the decimal point
+     * @return true if {@link #parseTenths} can decode the word
+     */
+    private static boolean isPlainNumber(long word, int dot) {
+        if (dot != 12 && dot != 20 && dot != 28) {
+            return false;
+        }
+        int point = dot >>> 3;
+        if ((word >>> (point * 8) & 0xFF) != '.') {
+            return false;
+        }
+        // The bytes before the point and the one after it
+        long digits = ((1L << (point * 8)) - 1) | (0xFFL << ((point + 1) * 8));
+        if ((word & 0xFF) == '-') {
+            if (point == 1) {
+                return false;
+            }
+            digits &= ~0xFFL;
+        }
+        // A byte is a digit if its high nibble is 3 and stays 3 after adding 6 to it
+        long masked = word & digits;
+        return (masked & HIGH_NIBBLES) == (ZEROS & digits)
+                && ((masked + (SIXES & digits)) & HIGH_NIBBLES) == (ZEROS & digits);
+    }
+
+    private static boolean isLineEnd(MemorySegment file, long pos, long end) {
+        if (pos >= end) {
+            return pos == end;
+        }
+        byte b = file.get(ValueLayout.JAVA_BYTE, pos);
+        return b == '\n';
+    }
+
+    /**
+     * Decodes a temperature of the form {@code -?d?d.d} held in the low bytes of a little-endian
+     * word into tenths of a degree, without branches. The word must have passed {@link #isPlainNumber}.
+     *
+     * @param word the 8 bytes starting at the temperature
+     * @param dot  the bit position of the decimal point's bit 4 (12, 20 or 28)
+     * @return the temperature in tenths of a degree
+     */
+    private static int parseTenths(long word, int dot) {
+        int shift = 28 - dot;
+        // -1 if the first byte is '-', otherwise 0
+        long signed = (~word << 59) >> 63;
+        long designMask = ~(signed & 0xFF);
+        // Align the digits so that the units digit is always in the same byte
+        long digits = ((word & designMask) << shift) & 0x0F000F0F00L;
+        // Multiply-add the three digits (hundreds, tens, units) in one go
+        long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+        return (int) ((absValue ^ signed) - signed);
+    }
+
+    /**
+     * Fallback for numbers that are not of the form {@code -?d?d.d}.
+     *
+     * @return the value in tenths of a degree, or {@link Integer#MIN_VALUE} if it is not a number
+     */
+    private static int parseSlow(MemorySegment file, long start, long end) {
+        if (end > start && file.get(ValueLayout.JAVA_BYTE, end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = file.asSlice(start, Math.max(0, end - start)).toArray(ValueLayout.JAVA_BYTE);
+        try {
+            return (int) Math.round(Double.parseDouble(new String(bytes, StandardCharsets.UTF_8)) * 10);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
 
-                            stations.computeIfAbsent(station, k -> new StationStats())
-                                    .update(temp);
-                        }
-                    });
+    /**
+     * @return the position just after the next newline at or after {@code pos}, or {@code end}
+     */
+    private static long nextLine(MemorySegment file, long pos, long end) {
+        while (pos < end && file.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos++;
         }
+        return Math.min(pos + 1, end);
     }
 
-    private static void printResults(ConcurrentHashMap<String, StationStats> stations) {
+    private static void printResults(Map<String, StationStats> stations) {
         String result = stations.entrySet().stream()
                 .sorted(Map.Entry.comparingByKey())
                 .map(entry -> {
                     StationStats stats = entry.getValue();
                     return String.format("%s=%.1f/%.1f/%.1f",
                             entry.getKey(),
-                            stats.min,
+                            stats.getMin(),
                             stats.getAverage(),
-                            stats.max);
+                            stats.getMax());
                 })
                 .collect(Collectors.joining(", ", "{", "}"));
 
@@ -1,52 +1,88 @@
 package dickens;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
+import java.util.zip.*;
 
 /**
  * This program processes a text file containing temperature data by weather stations.
  * It calculates the minimum, mean, and maximum temperature for each station and prints
  * the results in alphabetical order.
  * 
- * To run: java WeatherDataProcessor "path_to_file.txt"
+ * To run: java WeatherDataProcessor [options] "path_to_file.txt"
+ * 
+ * The file is processed by a bounded producer/consumer pipeline: the reader thread
+ * groups lines into batches and hands them to the workers through a bounded queue,
+ * blocking when the queue is full. Each worker aggregates whole batches into its own
+ * map and the maps are merged at the end, so heap use stays flat whatever the file size.
+ * 
+ * Files ending in ".gz" are decompressed on the fly, see {@link GzipInput}.
+ * 
+ * Options:
+ *   --workers=N       number of worker threads (default: available processors)
+ *   --batch-size=N    lines per batch (default: 8192)
+ *   --queue-depth=N   maximum number of batches waiting in the queue (default: 2 x workers)
  * 
  * @author Your Name
  * @version Java 19
  */
 public class WeatherDataProcessor {
 
+    /** Marks the end of the input for a worker */
+    private static final String[] END_OF_INPUT = new String[0];
+    private static final String USAGE =
+            "Usage: java WeatherDataProcessor [--workers=N] [--batch-size=N] [--queue-depth=N] <file_path>";
+    private static final List<String> OPTIONS = List.of("--workers=", "--batch-size=", "--queue-depth=");
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java WeatherDataProcessor <file_path>");
+        if (args.length < 1 || args[args.length - 1].startsWith("--")) {
+            System.out.println(USAGE);
             return;
         }
 
-        String filePath = args[0];
-        Map<String, Stats> stationStats = new ConcurrentHashMap<>();
-        
-        // Define the number of threads based on available processors
-        int threads = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
-            List<Future<?>> futures = new ArrayList<>();
+        String filePath = args[args.length - 1];
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String finalLine = line;
-                futures.add(executor.submit(() -> processLine(finalLine, stationStats)));
+        // Define the number of threads based on available processors unless configured
+        int threads = 0;
+        int batchSize = 0;
+        int queueDepth = 0;
+        try {
+            for (int i = 0; i < args.length - 1; i++) {
+                String arg = args[i];
+                if (OPTIONS.stream().noneMatch(arg::startsWith)) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                }
             }
+            threads = intOption(args, "--workers=", Runtime.getRuntime().availableProcessors());
+            batchSize = intOption(args, "--batch-size=", 8192);
+            queueDepth = intOption(args, "--queue-depth=", 2 * threads);
+        } catch (IllegalArgumentException e) {
+            // Also covers the NumberFormatException of a value that is not a number
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
 
-            // Wait for all tasks to complete
-            for (Future<?> future : futures) {
-                future.get();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            Path path = Paths.get(filePath);
+            Map<String, Stats> stationStats;
+            if (filePath.endsWith(".gz")) {
+                stationStats = GzipInput.aggregate(path, executor, threads, batchSize, queueDepth);
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(path)) {
+                    stationStats = aggregate(reader, executor, threads, batchSize, queueDepth);
+                }
             }
-            
-            // Shut down the executor
-            executor.shutdown();
 
             // Sort and format the output
             String result = stationStats.entrySet().stream()
@@ -59,14 +95,127 @@ public class WeatherDataProcessor {
 
         } catch (IOException | InterruptedException | ExecutionException e) {
             e.printStackTrace();
+        } finally {
+            // Shut down the executor
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the producer/consumer pipeline: the calling thread reads lines into batches and
+     * {@code threads} workers on the executor aggregate them.
+     * 
+     * @param reader     The input.
+     * @param executor   The executor to run the workers on.
+     * @param threads    The number of workers.
+     * @param batchSize  The number of lines per batch.
+     * @param queueDepth The maximum number of batches waiting in the queue.
+     * @return The merged statistics of all workers.
+     */
+    private static Map<String, Stats> aggregate(BufferedReader reader, ExecutorService executor, int threads,
+            int batchSize, int queueDepth) throws IOException, InterruptedException, ExecutionException {
+        BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(queueDepth);
+        List<Future<Map<String, Stats>>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> consume(queue)));
+        }
+
+        // Read lines into batches and hand them over, blocking while the queue is full
+        String[] batch = new String[batchSize];
+        int size = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            batch[size++] = line;
+            if (size == batchSize) {
+                put(queue, batch, workers);
+                batch = new String[batchSize];
+                size = 0;
+            }
+        }
+        if (size > 0) {
+            put(queue, Arrays.copyOf(batch, size), workers);
+        }
+        for (int i = 0; i < threads; i++) {
+            put(queue, END_OF_INPUT, workers);
+        }
+
+        // Merge the per-worker results
+        Map<String, Stats> stationStats = new HashMap<>();
+        for (Future<Map<String, Stats>> worker : workers) {
+            worker.get().forEach((station, stats) -> stationStats.merge(station, stats, Stats::merge));
+        }
+        return stationStats;
+    }
+
+    /**
+     * Reads an integer option of the form {@code --name=value} from the arguments.
+     * 
+     * @param args         The command-line arguments.
+     * @param prefix       The option prefix, including the '='.
+     * @param defaultValue The value to use if the option is absent.
+     * @return The option value.
+     */
+    private static int intOption(String[] args, String prefix, int defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                int value;
+                try {
+                    value = Integer.parseInt(arg.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid option: " + arg);
+                }
+                if (value < 1) {
+                    throw new IllegalArgumentException(prefix + " must be at least 1");
+                }
+                return value;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Puts a batch on the queue, waiting while it is full. A worker that finishes before
+     * the end of the input has failed, so its exception is rethrown instead of waiting forever.
+     * 
+     * @param queue   The queue shared with the workers.
+     * @param batch   The batch to hand over.
+     * @param workers The running workers.
+     */
+    private static void put(BlockingQueue<String[]> queue, String[] batch, List<Future<Map<String, Stats>>> workers)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<Map<String, Stats>> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("worker stopped before the end of the input");
+                }
+            }
         }
     }
 
+    /**
+     * Worker loop: takes batches from the queue until the end marker and aggregates
+     * them into a map that only this worker touches.
+     * 
+     * @param queue The queue shared with the reader.
+     * @return The statistics for all batches this worker processed.
+     */
+    private static Map<String, Stats> consume(BlockingQueue<String[]> queue) throws InterruptedException {
+        Map<String, Stats> stationStats = new HashMap<>();
+        String[] batch;
+        while ((batch = queue.take()) != END_OF_INPUT) {
+            for (String line : batch) {
+                processLine(line, stationStats);
+            }
+        }
+        return stationStats;
+    }
+
     /**
      * Processes a line of text, updating the stats map if the line contains valid data.
      * 
      * @param line         The line to process.
-     * @param stationStats The concurrent map of weather station statistics.
+     * @param stationStats The worker's map of weather station statistics.
      */
     private static void processLine(String line, Map<String, Stats> stationStats) {
         if (!line.startsWith("#") && line.contains(";")) {
@@ -75,19 +224,432 @@ public class WeatherDataProcessor {
                 String station = parts[0].trim();
                 try {
                     double temp = Double.parseDouble(parts[1].trim());
-                    stationStats.compute(station, (key, stats) -> {
-                        if (stats == null) {
-                            stats = new Stats();
-                        }
-                        stats.add(temp);
-                        return stats;
-                    });
+                    stationStats.computeIfAbsent(station, key -> new Stats()).add(temp);
                 } catch (NumberFormatException ignored) {
                 }
             }
         }
     }
 
+    /**
+     * Reads gzip-compressed input without decompressing it to disk.
+     * 
+     * A gzip file is a sequence of one or more members, each an independent deflate stream.
+     * The member starts are located up front: block-indexed (BGZF) files record each block's
+     * size in the header, so the index is a walk over the headers; other files are scanned
+     * for the gzip header signature, and each candidate is checked by a trial inflation. The
+     * scan only covers the whole file if a second member starts within the first
+     * {@link #UNIT_SIZE} bytes; otherwise the file is taken to be a single member, as plain
+     * gzip files almost always are, and is read only once.
+     * Consecutive members are grouped into units of about {@link #UNIT_SIZE} compressed bytes
+     * and the units are inflated and parsed in parallel, straight from the compressed file.
+     * A unit always runs on to the start of another unit, so a candidate that was a false match
+     * inside compressed data is simply covered by its predecessor and discarded. Lines cut
+     * at a unit boundary are stitched together when the units are merged in file order.
+     * 
+     * A file with a single member cannot be split, so it goes through the normal pipeline with
+     * the reader thread inflating and the workers parsing; that pipeline also reads any further
+     * members that follow.
+     */
+    static final class GzipInput {
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        /** Compressed bytes per work unit */
+        private static final long UNIT_SIZE = 8 << 20;
+        /** Bytes of compressed input read at a time */
+        private static final int CHUNK_SIZE = 256 << 10;
+        /** Output a candidate member must inflate without error to be believed */
+        private static final int TRIAL_OUTPUT = 64 << 10;
+        /** Header bytes read up front: the fixed fields, XLEN and one BGZF extra subfield */
+        private static final int HEADER_PROBE = 18;
+        /** The longest member header that is accepted, including file name and comment */
+        private static final int MAX_HEADER = 64 << 10;
+
+        /**
+         * The parsed fixed and optional fields of a member header.
+         * 
+         * @param length    The length of the header in bytes.
+         * @param blockSize The total size of the member from its BGZF extra field, or 0 if it has none.
+         */
+        private record Header(int length, int blockSize) {
+
+            /**
+             * Reads the header with one small read, and a second one only if the extra field
+             * is longer than a BGZF one or a file name or comment follows.
+             */
+            static Header read(FileChannel channel, long position) throws IOException {
+                ByteBuffer buffer = readAt(channel, position, HEADER_PROBE);
+                try {
+                    if (buffer.getShort() != (short) 0x8b1f || buffer.get() != 8) {
+                        throw new ZipException("No gzip member at offset " + position);
+                    }
+                    int flags = buffer.get() & 0xff;
+                    int headerLength = 10;
+                    if ((flags & FEXTRA) != 0) {
+                        headerLength += 2 + (buffer.getShort(10) & 0xffff);
+                    }
+                    if ((flags & FHCRC) != 0) {
+                        headerLength += 2;
+                    }
+                    if ((flags & (FNAME | FCOMMENT)) != 0) {
+                        headerLength = MAX_HEADER;
+                    }
+                    if (headerLength > buffer.capacity()) {
+                        buffer = readAt(channel, position, headerLength);
+                    }
+                    buffer.position(10);
+                    int blockSize = 0;
+                    if ((flags & FEXTRA) != 0) {
+                        int extraEnd = (buffer.getShort() & 0xffff) + buffer.position();
+                        while (buffer.position() + 4 <= extraEnd) {
+                            int id = buffer.getShort() & 0xffff;
+                            int length = buffer.getShort() & 0xffff;
+                            if (id == ('B' | 'C' << 8) && length == 2) {
+                                blockSize = (buffer.getShort(buffer.position()) & 0xffff) + 1;
+                            }
+                            buffer.position(buffer.position() + length);
+                        }
+                        buffer.position(extraEnd);
+                    }
+                    if ((flags & FNAME) != 0) {
+                        while (buffer.get() != 0) {
+                            // skip the zero-terminated file name
+                        }
+                    }
+                    if ((flags & FCOMMENT) != 0) {
+                        while (buffer.get() != 0) {
+                            // skip the zero-terminated comment
+                        }
+                    }
+                    if ((flags & FHCRC) != 0) {
+                        buffer.getShort();
+                    }
+                    return new Header(buffer.position(), blockSize);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                    throw new ZipException("Truncated gzip header at offset " + position);
+                }
+            }
+
+            private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                    // fill as much of the buffer as the file allows
+                }
+                return buffer.flip();
+            }
+        }
+
+        /**
+         * The result of inflating and parsing one unit.
+         * 
+         * @param start The offset of the unit's first member.
+         * @param end   The offset just after the unit's last member.
+         * @param head  The bytes before the first newline, or null if the unit has no newline.
+         * @param tail  The bytes after the last newline (all bytes if there is no newline).
+         * @param stats The statistics of the complete lines in between.
+         * @param error The failure, if the unit could not be inflated.
+         */
+        private record Unit(long start, long end, byte[] head, byte[] tail, Map<String, Stats> stats,
+                Exception error) {
+        }
+
+        /**
+         * Aggregates a gzip file, in parallel if it has more than one member.
+         */
+        static Map<String, Stats> aggregate(Path path, ExecutorService executor, int threads, int batchSize,
+                int queueDepth) throws IOException, InterruptedException, ExecutionException {
+            NavigableMap<Long, Header> members;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                members = locateMembers(channel, executor);
+            }
+            if (members.size() == 1) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(path), CHUNK_SIZE), StandardCharsets.UTF_8))) {
+                    return WeatherDataProcessor.aggregate(reader, executor, threads, batchSize, queueDepth);
+                }
+            }
+            return aggregateMembers(path, members, executor);
+        }
+
+        /**
+         * Finds the offsets at which members start, with their headers: exactly for BGZF files,
+         * otherwise every offset that carries a gzip header signature and survives a trial inflation.
+         */
+        private static NavigableMap<Long, Header> locateMembers(FileChannel channel, ExecutorService executor)
+                throws IOException, InterruptedException, ExecutionException {
+            long size = channel.size();
+            NavigableMap<Long, Header> members = new TreeMap<>();
+            Header first = Header.read(channel, 0);
+            members.put(0L, first);
+            if (first.blockSize() > 0) {
+                for (long position = first.blockSize(); position < size; ) {
+                    Header header = Header.read(channel, position);
+                    if (header.blockSize() == 0) {
+                        throw new ZipException("BGZF block without a size at offset " + position);
+                    }
+                    members.put(position, header);
+                    position += header.blockSize();
+                }
+                return members;
+            }
+
+            // Only a file with another member early on is worth a scan of the whole file
+            boolean split = false;
+            for (long start : signatures(channel, Math.min(size, UNIT_SIZE))) {
+                if (plausibleMember(channel, start) != null) {
+                    split = true;
+                    break;
+                }
+            }
+            if (!split) {
+                return members;
+            }
+
+            List<Long> starts = signatures(channel, size);
+            List<Future<Header>> trials = new ArrayList<>();
+            for (long start : starts) {
+                trials.add(executor.submit(() -> plausibleMember(channel, start)));
+            }
+            for (int i = 0; i < trials.size(); i++) {
+                Header header = trials.get(i).get();
+                if (header != null) {
+                    members.put(starts.get(i), header);
+                }
+            }
+            return members;
+        }
+
+        /**
+         * Scans [1, limit) for offsets that carry ID1 ID2 CM=deflate and a flag byte with the
+         * reserved bits clear.
+         */
+        private static List<Long> signatures(FileChannel channel, long limit) throws IOException {
+            List<Long> starts = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(8 << 20, limit + 3));
+            long position = 0;
+            while (position < limit) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), limit + 3 - position));
+                int read = channel.read(buffer, position);
+                if (read < 4) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i + 3 < read && position + i < limit; i++) {
+                    if (bytes[i] == 0x1f && bytes[i + 1] == (byte) 0x8b && bytes[i + 2] == 8
+                            && (bytes[i + 3] & 0xe0) == 0 && position + i > 0) {
+                        starts.add(position + i);
+                    }
+                }
+                // Overlap the chunks so that a signature across the boundary is seen
+                position += read - 3;
+            }
+            return starts;
+        }
+
+        /**
+         * @return The header of the member at {@code start}, or null if it does not inflate.
+         */
+        private static Header plausibleMember(FileChannel channel, long start) {
+            try {
+                Header header = Header.read(channel, start);
+                inflateMember(channel, start, header, new byte[TRIAL_OUTPUT], null);
+                return header;
+            } catch (IOException | DataFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Groups the members into units, inflates and parses the units in parallel and merges
+         * them in file order, parsing the lines that span unit boundaries on the way.
+         */
+        private static Map<String, Stats> aggregateMembers(Path path, NavigableMap<Long, Header> members,
+                ExecutorService executor) throws IOException, InterruptedException, ExecutionException {
+            NavigableSet<Long> unitStarts = new TreeSet<>();
+            long unitStart = -UNIT_SIZE;
+            for (long member : members.keySet()) {
+                if (member - unitStart >= UNIT_SIZE) {
+                    unitStarts.add(member);
+                    unitStart = member;
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                List<Future<Unit>> units = new ArrayList<>();
+                for (long start : unitStarts) {
+                    Long next = unitStarts.higher(start);
+                    long end = next == null ? size : next;
+                    units.add(executor.submit(() -> inflateUnit(channel, start, end, unitStarts, members)));
+                }
+
+                Map<String, Stats> stationStats = new HashMap<>();
+                ByteArrayOutputStream carry = new ByteArrayOutputStream();
+                long expected = 0;
+                for (Future<Unit> future : units) {
+                    Unit unit = future.get();
+                    if (unit.start() != expected) {
+                        // Started at a false signature that the previous unit has run through
+                        continue;
+                    }
+                    if (unit.error() != null) {
+                        throw new IOException("Cannot inflate " + path + " at offset " + unit.start(), unit.error());
+                    }
+                    if (unit.head() != null) {
+                        carry.write(unit.head());
+                        processLine(carry.toString(StandardCharsets.UTF_8), stationStats);
+                        carry.reset();
+                    }
+                    carry.write(unit.tail());
+                    unit.stats().forEach((station, stats) -> stationStats.merge(station, stats, Stats::merge));
+                    expected = unit.end();
+                }
+                if (expected != size) {
+                    throw new IOException("Trailing data after the last gzip member of " + path);
+                }
+                if (carry.size() > 0) {
+                    processLine(carry.toString(StandardCharsets.UTF_8), stationStats);
+                }
+                return stationStats;
+            }
+        }
+
+        /**
+         * Inflates members from {@code start} until reaching the start of another unit at or
+         * after {@code end}, or the end of the file.
+         */
+        private static Unit inflateUnit(FileChannel channel, long start, long end, NavigableSet<Long> unitStarts,
+                NavigableMap<Long, Header> members) throws IOException {
+            UnitParser parser = new UnitParser();
+            byte[] output = new byte[1 << 16];
+            long size = channel.size();
+            long position = start;
+            try {
+                do {
+                    Header header = members.get(position);
+                    if (header == null) {
+                        header = Header.read(channel, position);
+                    }
+                    position = inflateMember(channel, position, header, output, parser);
+                } while (position < size && (position < end || !unitStarts.contains(position)));
+            } catch (IOException | DataFormatException e) {
+                return new Unit(start, position, null, null, null, e);
+            }
+            return parser.finish(start, position);
+        }
+
+        /**
+         * Inflates the member at {@code start} into the parser and checks its CRC and length.
+         * Without a parser, inflation stops once the output buffer has been filled once.
+         * 
+         * @return The offset just after the member's trailer.
+         */
+        private static long inflateMember(FileChannel channel, long start, Header header, byte[] output,
+                UnitParser parser) throws IOException, DataFormatException {
+            ByteBuffer input = ByteBuffer.allocate(header.blockSize() > 0 ? header.blockSize() : CHUNK_SIZE);
+            Inflater inflater = new Inflater(true);
+            CRC32 crc = new CRC32();
+            try {
+                long position = start + header.length();
+                long length = 0;
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        input.clear();
+                        int read = channel.read(input, position);
+                        if (read <= 0) {
+                            throw new EOFException("Truncated gzip member at offset " + start);
+                        }
+                        position += read;
+                        inflater.setInput(input.flip());
+                    }
+                    int inflated = inflater.inflate(output);
+                    if (inflated == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("Gzip member at offset " + start + " needs a preset dictionary");
+                    }
+                    crc.update(output, 0, inflated);
+                    length += inflated;
+                    if (parser == null) {
+                        if (length >= output.length) {
+                            return -1;
+                        }
+                    } else {
+                        parser.accept(output, 0, inflated);
+                    }
+                }
+
+                long end = position - inflater.getRemaining();
+                ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                while (trailer.hasRemaining() && channel.read(trailer, end + trailer.position()) > 0) {
+                    // read the CRC32 and ISIZE fields
+                }
+                if (trailer.hasRemaining()) {
+                    throw new EOFException("Missing gzip trailer at offset " + end);
+                }
+                if (trailer.getInt(0) != (int) crc.getValue() || trailer.getInt(4) != (int) length) {
+                    throw new ZipException("Corrupt gzip member at offset " + start);
+                }
+                return end + 8;
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Splits inflated bytes into lines and aggregates them, keeping the bytes before the first
+     * newline and after the last one apart: those belong to lines shared with the neighbouring units.
+     */
+    private static final class UnitParser {
+        private final Map<String, Stats> stats = new HashMap<>();
+        private byte[] head;
+        private byte[] pending = new byte[256];
+        private int pendingLength;
+
+        void accept(byte[] buffer, int offset, int length) {
+            int end = offset + length;
+            int lineStart = offset;
+            for (int i = offset; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    line(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            append(buffer, lineStart, end - lineStart);
+        }
+
+        private void line(byte[] buffer, int from, int to) {
+            byte[] bytes = buffer;
+            if (pendingLength > 0) {
+                append(buffer, from, to - from);
+                bytes = pending;
+                from = 0;
+                to = pendingLength;
+                pendingLength = 0;
+            }
+            if (head == null) {
+                head = Arrays.copyOfRange(bytes, from, to);
+            } else {
+                processLine(new String(bytes, from, to - from, StandardCharsets.UTF_8), stats);
+            }
+        }
+
+        private void append(byte[] buffer, int offset, int length) {
+            if (pendingLength + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+            }
+            System.arraycopy(buffer, offset, pending, pendingLength, length);
+            pendingLength += length;
+        }
+
+        GzipInput.Unit finish(long start, long end) {
+            return new GzipInput.Unit(start, end, head, Arrays.copyOf(pending, pendingLength), stats, null);
+        }
+    }
+
     /**
      * Helper class to keep track of statistics for a weather station.
      */
@@ -113,6 +675,20 @@ public class WeatherDataProcessor {
             count++;
         }
 
+        /**
+         * Merges the statistics of another worker into this one.
+         * 
+         * @param other The statistics to merge.
+         * @return This instance.
+         */
+        Stats merge(Stats other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            return this;
+        }
+
         /**
          * Calculates the mean temperature.
          * 
@@ -6,43 +6,82 @@ package useroptimized;
  * 
  * Java version: 20+
  * 
- * Usage: java useroptimized.WeatherStationProcessor <input_file>
+ * Usage: java useroptimized.WeatherStationProcessor [--parallelism=N] [--leaf-size=BYTES] <input_file>
+ *
+ * The file's byte range is recursively bisected at newline boundaries by a
+ * RecursiveTask until a range is no larger than the leaf size. Leaves are parsed
+ * into private maps and child results are merged on join, so work stealing can
+ * even out the stragglers at the end of the run.
  */
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.atomic.DoubleAdder;
-import java.util.concurrent.atomic.LongAdder;
-import java.util.stream.Stream;
+import java.util.concurrent.RecursiveTask;
 
 public class WeatherStationProcessor {
 
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
 
+    /** Leaves are never made smaller than this, whatever the file size */
+    private static final long MIN_LEAF_SIZE = 1 << 20;
+
+    /** Default number of leaves per worker thread, so idle workers have something to steal */
+    private static final int LEAVES_PER_THREAD = 16;
+    private static final String USAGE =
+            "Usage: java useroptimized.WeatherStationProcessor [--parallelism=N] [--leaf-size=BYTES] <input_file>";
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage: java useroptimized.WeatherStationProcessor <input_file>");
+        if (args.length < 1 || args[args.length - 1].startsWith("--")) {
+            System.err.println(USAGE);
             System.exit(1);
         }
 
-        String inputFile = args[0];
-        Map<String, StationStatistics> stationData = new ConcurrentHashMap<>();
+        String inputFile = args[args.length - 1];
+        int parallelism = THREAD_COUNT;
+        long leafSize = 0;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(args[i].substring("--parallelism=".length()));
+                if (parallelism < 1) {
+                    System.err.println(USAGE);
+                    System.exit(1);
+                }
+            } else if (args[i].startsWith("--leaf-size=")) {
+                leafSize = Long.parseLong(args[i].substring("--leaf-size=".length()));
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
+            }
+        }
 
-        try (BufferedReader reader = Files.newBufferedReader(Path.of(inputFile));
-             Stream<String> lines = reader.lines()) {
+        Map<String, StationStatistics> stationData;
 
-            ForkJoinPool customThreadPool = new ForkJoinPool(THREAD_COUNT);
-            customThreadPool.submit(() -> lines.parallel().forEach(line -> processLine(line, stationData))).join();
+        try (FileChannel channel = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (leafSize <= 0) {
+                // Adaptive leaf size: enough leaves per thread for stealing to balance the load
+                leafSize = Math.max(MIN_LEAF_SIZE, size / ((long) parallelism * LEAVES_PER_THREAD));
+            }
+
+            ForkJoinPool customThreadPool = new ForkJoinPool(parallelism);
+            try {
+                stationData = customThreadPool.invoke(new RangeTask(channel, 0, size, leafSize));
+            } finally {
+                customThreadPool.shutdown();
+            }
 
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
             System.exit(2);
+            return;
         }
 
         stationData.entrySet().stream()
@@ -50,16 +89,115 @@ public class WeatherStationProcessor {
                 .forEach(entry -> {
                     String station = entry.getKey();
                     StationStatistics stats = entry.getValue();
-                    double mean = stats.sum.doubleValue() / stats.count.doubleValue();
+                    double mean = stats.sum / stats.count;
                     System.out.printf("%s=%.1f/%.1f/%.1f%n", station, stats.min, mean, stats.max);
                 });
     }
 
+    /**
+     * Aggregates the byte range [start, end) of the file. Ranges larger than the leaf size
+     * are split in two at a newline; the left half is forked and the right half computed
+     * in place, then the two results are merged.
+     */
+    @SuppressWarnings("serial") // never serialized; holds a FileChannel
+    private static class RangeTask extends RecursiveTask<Map<String, StationStatistics>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long leafSize;
+
+        RangeTask(FileChannel channel, long start, long end, long leafSize) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected Map<String, StationStatistics> compute() {
+            try {
+                if (end - start > leafSize) {
+                    long mid = nextLineStart(start + (end - start) / 2);
+                    if (mid < end) {
+                        RangeTask left = new RangeTask(channel, start, mid, leafSize);
+                        left.fork();
+                        Map<String, StationStatistics> right = new RangeTask(channel, mid, end, leafSize).compute();
+                        return merge(left.join(), right);
+                    }
+                }
+                return processRange();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * @return the position just after the first newline at or after {@code pos}, or the range end
+         */
+        private long nextLineStart(long pos) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            while (pos < end) {
+                buffer.clear();
+                int read = channel.read(buffer, pos);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return pos + i + 1;
+                    }
+                }
+                pos += read;
+            }
+            return end;
+        }
+
+        /**
+         * Parses every line of the leaf range into a map private to this task.
+         */
+        private Map<String, StationStatistics> processRange() throws IOException {
+            Map<String, StationStatistics> stationData = new HashMap<>();
+            byte[] block = new byte[(int) Math.min(end - start, MIN_LEAF_SIZE) + 1];
+            int carry = 0;
+            long pos = start;
+            while (pos < end) {
+                if (carry == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(block, carry, (int) Math.min(block.length - carry, end - pos)), pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
+                int limit = carry + read;
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (block[i] == '\n') {
+                        processLine(new String(block, lineStart, i - lineStart, StandardCharsets.UTF_8), stationData);
+                        lineStart = i + 1;
+                    }
+                }
+                carry = limit - lineStart;
+                System.arraycopy(block, lineStart, block, 0, carry);
+            }
+            if (carry > 0) {
+                processLine(new String(block, 0, carry, StandardCharsets.UTF_8), stationData);
+            }
+            return stationData;
+        }
+
+        private static Map<String, StationStatistics> merge(Map<String, StationStatistics> into,
+                                                            Map<String, StationStatistics> from) {
+            from.forEach((station, stats) -> into.merge(station, stats, StationStatistics::merge));
+            return into;
+        }
+    }
+
     /**
      * Processes a single line of the input file.
      * 
      * @param line       The line to process.
-     * @param stationData The shared data structure for storing results.
+     * @param stationData The task's private map for storing results.
      */
     private static void processLine(String line, Map<String, StationStatistics> stationData) {
         if (line.startsWith("#") || line.isBlank()) {
@@ -79,29 +217,32 @@ public class WeatherStationProcessor {
             return; // Skip lines with invalid temperature data
         }
 
-        stationData.compute(station, (key, stats) -> {
-            if (stats == null) {
-                stats = new StationStatistics();
-            }
-            stats.update(temperature);
-            return stats;
-        });
+        stationData.computeIfAbsent(station, key -> new StationStatistics()).update(temperature);
     }
 
     /**
-     * A thread-safe class to hold statistics for a weather station.
+     * Statistics for a weather station. Instances are confined to one task until
+     * they are merged on join, so no synchronisation is needed.
      */
     private static class StationStatistics {
-        private final DoubleAdder sum = new DoubleAdder();
-        private final LongAdder count = new LongAdder();
-        private volatile double min = Double.MAX_VALUE;
-        private volatile double max = Double.MIN_VALUE;
-
-        public synchronized void update(double temperature) {
-            sum.add(temperature);
-            count.increment();
+        private double sum;
+        private long count;
+        private double min = Double.MAX_VALUE;
+        private double max = Double.MIN_VALUE;
+
+        public void update(double temperature) {
+            sum += temperature;
+            count++;
             min = Math.min(min, temperature);
             max = Math.max(max, temperature);
         }
+
+        public StationStatistics merge(StationStatistics other) {
+            sum += other.sum;
+            count += other.count;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            return this;
+        }
     }
 }
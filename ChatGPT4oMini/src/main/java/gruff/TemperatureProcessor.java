@@ -12,6 +12,9 @@
  * Each line contains Station;Temperature
  * Lines starting with # are considered comments and should be ignored.
  * 
+ * Run with the Vector API enabled to use the SIMD delimiter scan:
+ * java --add-modules jdk.incubator.vector gruff.TemperatureProcessor measurements.txt
+ * 
  * @author <Your Name>
  * @version 1.0
  */
@@ -21,18 +24,25 @@ package gruff;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.*;
-import java.util.function.*;
-import java.util.regex.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.file.*;
 import java.nio.charset.*;
 import jdk.incubator.vector.*;
 
 /**
- * Main class for processing temperature data
+ * Main class for processing temperature data.
+ *
+ * The file is split into newline-aligned ranges, one per core. Each worker reads its
+ * range in large blocks, finds every ';' and '\n' with a SIMD scan built on the Vector
+ * API (falling back to a scalar scan when the jdk.incubator.vector module is not
+ * present), and hands the found boundaries to a byte-level line parser.
  */
 public class TemperatureProcessor {
-    
+
+    /** Size of the blocks each worker reads from the file */
+    private static final int BLOCK_SIZE = 1 << 20;
+
     public static void main(String[] args) {
         if (args.length != 1) {
             System.err.println("Usage: java gruff.TemperatureProcessor <input-file>");
@@ -40,52 +50,273 @@ public class TemperatureProcessor {
         }
         
         String fileName = args[0];
+        int threads = Runtime.getRuntime().availableProcessors();
         
         // Create a thread pool for parallel processing
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
         
-        // Result map to store temperature data per station
-        ConcurrentMap<String, TemperatureStats> stationStats = new ConcurrentHashMap<>();
-        
-        // Regular expression for valid temperature lines
-        Pattern pattern = Pattern.compile("^(?!#)([A-Za-z ]+);([-+]?[0-9]*\\.?[0-9]+)$");
-
-        // Process the file line by line using parallel streams
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
-            reader.lines()
-                .parallel()
-                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
-                .map(pattern::matcher)
-                .filter(Matcher::matches)
-                .forEach(matcher -> {
-                    String station = matcher.group(1).trim();
-                    double temperature = Double.parseDouble(matcher.group(2));
-                    stationStats.compute(station, (key, stats) -> {
-                        if (stats == null) {
-                            stats = new TemperatureStats();
-                        }
-                        stats.addTemperature(temperature);
-                        return stats;
-                    });
-                });
-        } catch (IOException e) {
+        // Result map to store temperature data per station, sorted by station name
+        Map<String, TemperatureStats> stationStats = new TreeMap<>();
+
+        // Use the SIMD scanner only when the incubator module has been added to the JVM
+        BoundaryScanner scanner = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                ? new VectorBoundaryScanner()
+                : new ScalarBoundaryScanner();
+
+        // Process newline-aligned ranges of the file in parallel, each into its own map
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Future<Map<String, TemperatureStats>>> results = new ArrayList<>();
+            long start = 0;
+            for (int i = 1; i <= threads && start < size; i++) {
+                long end = i == threads ? size : alignToLine(channel, size * i / threads, size);
+                if (end <= start) {
+                    continue;
+                }
+                long rangeStart = start;
+                results.add(executor.submit(() -> processRange(channel, rangeStart, end, scanner)));
+                start = end;
+            }
+
+            for (Future<Map<String, TemperatureStats>> result : results) {
+                result.get().forEach((station, stats) -> stationStats.merge(station, stats, TemperatureStats::merge));
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            // Shutdown the executor service
+            executor.shutdown();
         }
 
         // Print the results in the desired format
-        stationStats.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .forEach(entry -> {
-                String station = entry.getKey();
-                TemperatureStats stats = entry.getValue();
-                System.out.printf("%s=%.1f/%.1f/%.1f, ", station, stats.min(), stats.mean(), stats.max());
-            });
-        
-        // Shutdown the executor service
-        executor.shutdown();
+        stationStats.forEach((station, stats) ->
+                System.out.printf("%s=%.1f/%.1f/%.1f, ", station, stats.min(), stats.mean(), stats.max()));
+    }
+
+    /**
+     * Moves a file position forward to the first byte after the next newline
+     *
+     * @param channel the file
+     * @param pos the position to align
+     * @param size the file size
+     * @return the start of the next line, or the file size
+     */
+    private static long alignToLine(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the byte range [start, end) of the file block by block and aggregates every
+     * line in it. A line cut by the end of a block is carried over to the next block.
+     *
+     * @param channel the file
+     * @param start first byte of the range (start of a line)
+     * @param end end of the range (just after a newline, or end of file)
+     * @param scanner the boundary scanner to use
+     * @return the statistics for this range
+     */
+    private static Map<String, TemperatureStats> processRange(FileChannel channel, long start, long end,
+                                                              BoundaryScanner scanner) throws IOException {
+        Map<String, TemperatureStats> stats = new HashMap<>();
+        byte[] block = new byte[BLOCK_SIZE];
+        int[] boundaries = new int[BLOCK_SIZE];
+        int carry = 0;
+        long pos = start;
+
+        while (pos < end || carry > 0) {
+            int limit = carry;
+            if (pos < end) {
+                if (carry == block.length) {
+                    // A single line longer than the block: grow both buffers
+                    block = Arrays.copyOf(block, block.length * 2);
+                    boundaries = new int[block.length];
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(block, carry, (int) Math.min(block.length - carry, end - pos));
+                int read = channel.read(buffer, pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
+                limit += read;
+            } else {
+                // Final line without a trailing newline
+                block[limit] = '\n';
+                limit++;
+            }
+
+            int found = scanner.scan(block, 0, limit, boundaries);
+            int lineStart = parseLines(block, boundaries, found, stats);
+
+            carry = limit - lineStart;
+            System.arraycopy(block, lineStart, block, 0, carry);
+            if (pos >= end && carry > 0 && block.length == carry) {
+                // Room for the newline appended to the final line: grow both buffers
+                block = Arrays.copyOf(block, block.length + 1);
+                boundaries = new int[block.length];
+            }
+        }
+        return stats;
     }
-    
+
+    /**
+     * Parses all complete lines in a block using the delimiter positions found by the scanner
+     *
+     * @param block the bytes
+     * @param boundaries positions of ';' and '\n', in ascending order
+     * @param count number of positions in {@code boundaries}
+     * @param stats the map to aggregate into
+     * @return the start of the first incomplete line in the block
+     */
+    private static int parseLines(byte[] block, int[] boundaries, int count, Map<String, TemperatureStats> stats) {
+        int lineStart = 0;
+        int separator = -1;
+        for (int i = 0; i < count; i++) {
+            int p = boundaries[i];
+            if (block[p] == ';') {
+                if (separator < 0) {
+                    separator = p;
+                }
+                continue;
+            }
+
+            // Ignore empty lines, comments and lines without a separator
+            if (p > lineStart && block[lineStart] != '#' && separator > lineStart) {
+                int valueEnd = p > separator + 1 && block[p - 1] == '\r' ? p - 1 : p;
+                long tenths = parseTemperature(block, separator + 1, valueEnd);
+                if (tenths != INVALID) {
+                    double temperature = (double) (tenths >> 8) / POWERS_OF_TEN[(int) (tenths & 0xFF)];
+                    String station = new String(block, lineStart, separator - lineStart, StandardCharsets.UTF_8);
+                    stats.computeIfAbsent(station, k -> new TemperatureStats()).addTemperature(temperature);
+                }
+            }
+            lineStart = p + 1;
+            separator = -1;
+        }
+        return lineStart;
+    }
+
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * Parses a number of the form {@code [-+]?[0-9]*\.?[0-9]+} from the bytes.
+     * The result packs the signed digits (as an integer) in the upper bits and the
+     * number of decimal places in the low 8 bits, so the double value is computed
+     * with a single exact division.
+     *
+     * @return the packed value, or {@link #INVALID} if the field is not a number
+     */
+    private static long parseTemperature(byte[] block, int from, int to) {
+        int pos = from;
+        boolean negative = false;
+        if (pos < to && (block[pos] == '-' || block[pos] == '+')) {
+            negative = block[pos] == '-';
+            pos++;
+        }
+        long digits = 0;
+        int count = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; pos < to; pos++) {
+            byte b = block[pos];
+            if (b >= '0' && b <= '9') {
+                if (++count > 15) {
+                    return INVALID;
+                }
+                digits = digits * 10 + (b - '0');
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return INVALID;
+            }
+        }
+        // Must end with a digit
+        if (count == 0 || block[to - 1] == '.') {
+            return INVALID;
+        }
+        return ((negative ? -digits : digits) << 8) | scale;
+    }
+
+    /**
+     * Finds the positions of ';' and '\n' in a block of bytes
+     */
+    interface BoundaryScanner {
+        /**
+         * @param block the bytes to scan
+         * @param from first position to scan
+         * @param to end of the scan (exclusive)
+         * @param out receives the positions found, in ascending order
+         * @return the number of positions written to {@code out}
+         */
+        int scan(byte[] block, int from, int to, int[] out);
+    }
+
+    /**
+     * Scalar scanner, used for block tails and when the Vector API is not available
+     */
+    static final class ScalarBoundaryScanner implements BoundaryScanner {
+        @Override
+        public int scan(byte[] block, int from, int to, int[] out) {
+            return scanScalar(block, from, to, out, 0);
+        }
+
+        static int scanScalar(byte[] block, int from, int to, int[] out, int found) {
+            for (int i = from; i < to; i++) {
+                byte b = block[i];
+                if (b == ';' || b == '\n') {
+                    out[found++] = i;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * SIMD scanner: compares a whole vector of bytes against ';' and '\n' at once and
+     * walks the set bits of the resulting mask. Only the tail that does not fill a
+     * whole vector is scanned byte by byte.
+     */
+    static final class VectorBoundaryScanner implements BoundaryScanner {
+        private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+        @Override
+        public int scan(byte[] block, int from, int to, int[] out) {
+            int found = 0;
+            int i = from;
+            int bound = from + SPECIES.loopBound(to - from);
+            for (; i < bound; i += SPECIES.length()) {
+                ByteVector v = ByteVector.fromArray(SPECIES, block, i);
+                long bits = v.eq((byte) ';').or(v.eq((byte) '\n')).toLong();
+                while (bits != 0) {
+                    out[found++] = i + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+            return ScalarBoundaryScanner.scanScalar(block, i, to, out, found);
+        }
+    }
+
     /**
      * Class to store temperature statistics (min, mean, max) for each station
      */
@@ -111,6 +342,20 @@ public class TemperatureProcessor {
             count++;
         }
 
+        /**
+         * Merges the statistics of another range into this one
+         *
+         * @param other the statistics to merge
+         * @return this instance
+         */
+        public TemperatureStats merge(TemperatureStats other) {
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            count += other.count;
+            return this;
+        }
+
         /**
          * Gets the mean temperature
          * 
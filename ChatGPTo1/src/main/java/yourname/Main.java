@@ -10,7 +10,22 @@
  * 
  * Command-line usage:
  *   java -Xmx8g -XX:+UseG1GC -XX:+UnlockExperimentalVMOptions -XX:+UseVectorApi -XX:AOTLibrary=./aot
- *   -cp . yourname Main input.txt
+ *   -cp . yourname Main [--mapped] input.txt
+ *   -cp . yourname Main --spill [--partitions=P] [--memory-budget=BYTES] [--spill-dir=DIR] input.txt
+ *
+ * With --mapped the file is memory-mapped as a single MemorySegment (no 2 GB
+ * MappedByteBuffer limit), split into newline-aligned segments and each
+ * segment is parsed on its own core. The per-segment tables are merged into
+ * the same StationStats output as the sequential reader.
+ *
+ * With --spill (for files with tens of millions of distinct stations) the
+ * mapped reader runs within a fixed memory budget (default: a quarter of the
+ * max heap). A worker whose table outgrows its share of the budget writes the
+ * table's partial aggregates to P spill files, partitioned by station hash,
+ * and starts over. Each partition is then aggregated on its own, in parallel
+ * as far as the budget allows, into a sorted run, and the runs are merged
+ * while the output is written. If no worker ever spills, the result is
+ * produced in memory exactly as with --mapped.
  * 
  * The program attempts to optimize for performance:
  * - Uses modern Java constructs
@@ -19,25 +34,47 @@
  * - Avoids external dependencies
  * 
  * Note:
- * - For extreme performance, one might consider using memory-mapped files,
- *   advanced parallelization strategies, custom thread pools, or vectorized
- *   parsing (if feasible). These are beyond the scope of this code snippet.
+ * - Memory-mapped, segment-parallel parsing is available via --mapped.
+ *   Vectorized parsing is beyond the scope of this code snippet.
  * - The provided code is a reference solution and should be tested and profiled 
  *   before use on extremely large files.
  */
 
 package yourname;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 /**
@@ -73,6 +110,32 @@ final class StationStats {
         this.count.increment();
     }
 
+    /**
+     * Restores a partial aggregate, e.g. one read back from a spill file.
+     */
+    StationStats(double min, double max, double sum, long count) {
+        this.min = min;
+        this.max = max;
+        this.sum = new DoubleAdder();
+        this.count = new LongAdder();
+        this.sum.add(sum);
+        this.count.add(count);
+    }
+
+    /**
+     * Folds the statistics of another (per-segment) instance into this one.
+     */
+    void merge(StationStats other) {
+        if (other.min < this.min) {
+            this.min = other.min;
+        }
+        if (other.max > this.max) {
+            this.max = other.max;
+        }
+        this.sum.add(other.sum.sum());
+        this.count.add(other.count.sum());
+    }
+
     double getMin() {
         return this.min;
     }
@@ -81,6 +144,14 @@ final class StationStats {
         return this.max;
     }
 
+    double getSum() {
+        return this.sum.sum();
+    }
+
+    long getCount() {
+        return this.count.sum();
+    }
+
     double getMean() {
         return this.sum.sum() / this.count.sum();
     }
@@ -93,16 +164,101 @@ public class Main {
     /**
      * Main entry point of the application.
      * 
-     * @param args command-line arguments; args[0] should be the input filename.
+     * @param args command-line arguments; "--mapped" or "--spill" (with its
+     *             options) followed by the input filename.
      */
     public static void main(String[] args) throws Exception {
-        if (args.length < 1) {
-            System.err.println("Usage: java yourname.Main <inputfile>");
+        boolean usage = args.length < 1;
+        boolean mapped = false;
+        boolean spill = false;
+        int partitions = 64;
+        long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+        Path spillDir = Path.of(System.getProperty("java.io.tmpdir"));
+        for (int i = 0; i < args.length - 1; i++) {
+            String arg = args[i];
+            if (arg.equals("--mapped")) {
+                mapped = true;
+            } else if (arg.equals("--spill")) {
+                spill = true;
+            } else if (arg.startsWith("--partitions=")) {
+                partitions = Integer.parseInt(arg.substring("--partitions=".length()));
+            } else if (arg.startsWith("--memory-budget=")) {
+                memoryBudget = Long.parseLong(arg.substring("--memory-budget=".length()));
+            } else if (arg.startsWith("--spill-dir=")) {
+                spillDir = Path.of(arg.substring("--spill-dir=".length()));
+            } else {
+                usage = true;
+            }
+        }
+        if (usage || partitions < 1 || memoryBudget < 1) {
+            System.err.println("Usage: java yourname.Main [--mapped] <inputfile>");
+            System.err.println("       java yourname.Main --spill [--partitions=P] [--memory-budget=BYTES] [--spill-dir=DIR] <inputfile>");
             System.exit(1);
         }
 
-        String inputFile = args[0];
+        String inputFile = args[args.length - 1];
+
+        if (spill) {
+            readSpilling(inputFile, partitions, memoryBudget, spillDir);
+            return;
+        }
+
+        Map<String, StationStats> stationData = mapped
+                ? readMapped(inputFile)
+                : readSequential(inputFile);
+
+        printResults(stationData);
+    }
 
+    /**
+     * Prints all stations sorted alphabetically on a single line.
+     */
+    private static void printResults(Map<String, StationStats> stationData) {
+        // Sort the station names alphabetically
+        List<String> stations = new ArrayList<>(stationData.keySet());
+        Collections.sort(stations);
+
+        // Build the output line
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        boolean first = true;
+        for (String st : stations) {
+            if (!first) {
+                sb.append(", ");
+            }
+            appendStation(sb, st, stationData.get(st));
+            first = false;
+        }
+        sb.append('}');
+
+        // Print the results
+        System.out.println(sb.toString());
+    }
+
+    /**
+     * Folds a worker's table into the combined statistics.
+     */
+    private static void mergeInto(Map<String, StationStats> stationData, Map<String, StationStats> table) {
+        table.forEach((station, stats) -> stationData.merge(station, stats, (a, b) -> {
+            a.merge(b);
+            return a;
+        }));
+    }
+
+    private static void appendStation(StringBuilder sb, String station, StationStats stats) {
+        sb.append(station).append('=')
+          .append(stats.getMin()).append('/')
+          .append(stats.getMean()).append('/')
+          .append(stats.getMax());
+    }
+
+    /**
+     * Reads the file line by line on the calling thread.
+     *
+     * @param inputFile path of the input file
+     * @return aggregated statistics keyed by station name
+     */
+    private static Map<String, StationStats> readSequential(String inputFile) throws IOException {
         // Use a concurrent map for thread-safe updates.
         // The key is the station name (String), 
         // and the value is a StationStats object.
@@ -154,28 +310,644 @@ public class Main {
             }
         }
 
-        // Sort the station names alphabetically
-        List<String> stations = new ArrayList<>(stationData.keySet());
-        Collections.sort(stations);
+        return stationData;
+    }
 
-        // Build the output line
-        StringBuilder sb = new StringBuilder();
-        sb.append('{');
-        boolean first = true;
-        for (String st : stations) {
-            if (!first) {
-                sb.append(", ");
+    /**
+     * Maps the whole file into one MemorySegment, splits it into
+     * newline-aligned segments and parses every segment on its own thread.
+     * Each worker fills a private table; the tables are merged at the end.
+     *
+     * @param inputFile path of the input file
+     * @return aggregated statistics keyed by station name
+     */
+    private static Map<String, StationStats> readMapped(String inputFile) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try (FileChannel channel = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+
+            long size = channel.size();
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            // Cut the file into roughly equal parts, moving each cut forward to the next newline
+            long[] bounds = segmentBounds(file, threads);
+            int segments = bounds.length - 1;
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, segments)));
+            try {
+                List<Future<Map<String, StationStats>>> partials = new ArrayList<>(segments);
+                for (int i = 0; i < segments; i++) {
+                    long start = bounds[i];
+                    long end = bounds[i + 1];
+                    partials.add(pool.submit(() -> parseSegment(file, start, end, null)));
+                }
+
+                Map<String, StationStats> stationData = new HashMap<>();
+                for (Future<Map<String, StationStats>> partial : partials) {
+                    mergeInto(stationData, partial.get());
+                }
+                return stationData;
+            } finally {
+                pool.shutdown();
             }
-            StationStats stats = stationData.get(st);
-            sb.append(st).append('=')
-              .append(stats.getMin()).append('/')
-              .append(stats.getMean()).append('/')
-              .append(stats.getMax());
-            first = false;
         }
-        sb.append('}');
+    }
 
-        // Print the results
-        System.out.println(sb.toString());
+    /**
+     * Computes segment boundaries so that every segment starts at the
+     * beginning of a line and ends just after a newline (or at end of file).
+     */
+    private static long[] segmentBounds(MemorySegment file, int parts) {
+        long size = file.byteSize();
+        long chunk = Math.max(1, size / parts);
+        List<Long> bounds = new ArrayList<>(parts + 1);
+        bounds.add(0L);
+        long pos = 0;
+        while (pos < size) {
+            long next = Math.min(size, pos + chunk);
+            while (next < size && file.get(ValueLayout.JAVA_BYTE, next - 1) != '\n') {
+                next++;
+            }
+            bounds.add(next);
+            pos = next;
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Parses all lines in [start, end) of the mapped file into a private map.
+     * No locking is needed as the map never leaves the worker thread until
+     * the segment is done. Rows are looked up by their name bytes; a String
+     * is only created when a station is first seen. With a spill target, the
+     * map is written out and cleared whenever its estimated size passes the
+     * worker's budget.
+     */
+    private static Map<String, StationStats> parseSegment(MemorySegment file, long start, long end,
+                                                          Spill spill) throws IOException {
+        Map<String, StationStats> local = new HashMap<>(1024);
+        NameIndex index = new NameIndex();
+        long tableBytes = 0;
+        byte[] name = new byte[128];
+        long pos = start;
+
+        while (pos < end) {
+            // Skip comment lines and blank lines
+            byte first = file.get(ValueLayout.JAVA_BYTE, pos);
+            if (first == '#' || first == '\n') {
+                pos = nextLine(file, pos, end);
+                continue;
+            }
+
+            // Copy the station name up to the separator
+            int len = 0;
+            int hash = 0;
+            byte b;
+            while (pos < end && (b = file.get(ValueLayout.JAVA_BYTE, pos)) != ';' && b != '\n') {
+                if (len == name.length) {
+                    name = Arrays.copyOf(name, len * 2);
+                }
+                name[len++] = b;
+                hash = 31 * hash + b;
+                pos++;
+            }
+            if (pos >= end || file.get(ValueLayout.JAVA_BYTE, pos) != ';') {
+                // If line format is incorrect, skip
+                pos = nextLine(file, pos, end);
+                continue;
+            }
+            pos++;
+
+            long lineEnd = pos;
+            while (lineEnd < end && file.get(ValueLayout.JAVA_BYTE, lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            double temperature = parseTemperature(file, pos, lineEnd);
+            pos = lineEnd + 1;
+            if (Double.isNaN(temperature)) {
+                // If not a valid number, skip
+                continue;
+            }
+
+            StationStats stats = index.get(name, len, hash);
+            if (stats != null) {
+                stats.add(temperature);
+                continue;
+            }
+            String station = new String(name, 0, len, StandardCharsets.UTF_8);
+            stats = local.get(station);
+            if (stats != null) {
+                // Different bytes decoding to the same name (malformed UTF-8)
+                stats.add(temperature);
+            } else {
+                stats = new StationStats(temperature);
+                local.put(station, stats);
+            }
+            index.put(name, len, hash, stats);
+            tableBytes += Spill.ENTRY_OVERHEAD + 2L * len;
+            if (spill != null && tableBytes > spill.workerBudget) {
+                spill.write(local);
+                local.clear();
+                index.clear();
+                tableBytes = 0;
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Open-addressing index from the UTF-8 bytes of a station name to the
+     * statistics in a worker's table, so that a row can be looked up without
+     * decoding its name.
+     */
+    private static final class NameIndex {
+        private byte[][] names = new byte[1024][];
+        private int[] hashes = new int[1024];
+        private StationStats[] values = new StationStats[1024];
+        private int size;
+
+        StationStats get(byte[] name, int length, int hash) {
+            int mask = names.length - 1;
+            for (int i = spread(hash) & mask; names[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && Arrays.equals(names[i], 0, names[i].length, name, 0, length)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(byte[] name, int length, int hash, StationStats stats) {
+            if (2 * (size + 1) > names.length) {
+                byte[][] oldNames = names;
+                int[] oldHashes = hashes;
+                StationStats[] oldValues = values;
+                names = new byte[oldNames.length * 2][];
+                hashes = new int[names.length];
+                values = new StationStats[names.length];
+                for (int i = 0; i < oldNames.length; i++) {
+                    if (oldNames[i] != null) {
+                        insert(oldNames[i], oldHashes[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(Arrays.copyOf(name, length), hash, stats);
+            size++;
+        }
+
+        private void insert(byte[] name, int hash, StationStats stats) {
+            int mask = names.length - 1;
+            int i = spread(hash) & mask;
+            while (names[i] != null) {
+                i = (i + 1) & mask;
+            }
+            names[i] = name;
+            hashes[i] = hash;
+            values[i] = stats;
+        }
+
+        void clear() {
+            Arrays.fill(names, null);
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * High-cardinality mode: parses the mapped file with every worker held to
+     * its share of the memory budget, spilling to hash partitions on disk as
+     * needed, then aggregates the partitions and streams the sorted output.
+     */
+    private static void readSpilling(String inputFile, int partitions, long memoryBudget, Path spillDir)
+            throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path dir = Files.createTempDirectory(spillDir, "yourname-spill");
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = FileChannel.open(Path.of(inputFile), StandardOpenOption.READ);
+             Arena arena = Arena.ofShared();
+             Spill spill = new Spill(dir, partitions, memoryBudget / threads, memoryBudget)) {
+
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            long[] bounds = segmentBounds(file, threads);
+            List<Future<Map<String, StationStats>>> partials = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                partials.add(pool.submit(() -> parseSegment(file, start, end, spill)));
+            }
+            List<Map<String, StationStats>> tables = new ArrayList<>();
+            for (Future<Map<String, StationStats>> partial : partials) {
+                tables.add(partial.get());
+            }
+
+            if (!spill.spilled()) {
+                // Everything fit: finish in memory like --mapped
+                Map<String, StationStats> stationData = new HashMap<>();
+                for (Map<String, StationStats> table : tables) {
+                    mergeInto(stationData, table);
+                }
+                printResults(stationData);
+                return;
+            }
+
+            List<Future<?>> flushes = new ArrayList<>();
+            for (Map<String, StationStats> table : tables) {
+                flushes.add(pool.submit(() -> {
+                    spill.write(table);
+                    return null;
+                }));
+            }
+            for (Future<?> flush : flushes) {
+                flush.get();
+            }
+            spill.finishWriting();
+
+            // Aggregate each partition into sorted runs, admitting as many at once as the budget allows
+            int budgetKiB = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudget >> 10));
+            Semaphore budget = new Semaphore(budgetKiB);
+            List<Future<List<Path>>> runs = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                int partition = p;
+                int permits = (int) Math.min(budgetKiB, Math.max(1, spill.estimatedBytes(partition) >> 10));
+                runs.add(pool.submit(() -> {
+                    budget.acquire(permits);
+                    try {
+                        return spill.sortPartition(partition);
+                    } finally {
+                        budget.release(permits);
+                    }
+                }));
+            }
+            List<Path> runFiles = new ArrayList<>(partitions);
+            for (Future<List<Path>> run : runs) {
+                runFiles.addAll(run.get());
+            }
+            mergeRuns(runFiles);
+        } finally {
+            pool.shutdownNow();
+            try (var files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(f);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * Merges the sorted runs by station name and writes the result line in
+     * pieces, so the full output never has to be held in memory.
+     */
+    private static void mergeRuns(List<Path> runFiles) throws IOException {
+        PriorityQueue<Spill.RunReader> queue = new PriorityQueue<>((a, b) -> a.station.compareTo(b.station));
+        List<Spill.RunReader> readers = new ArrayList<>(runFiles.size());
+        try {
+            for (Path runFile : runFiles) {
+                Spill.RunReader reader = new Spill.RunReader(runFile);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            StringBuilder sb = new StringBuilder(1 << 16);
+            sb.append('{');
+            boolean first = true;
+            while (!queue.isEmpty()) {
+                Spill.RunReader reader = queue.poll();
+                if (!first) {
+                    sb.append(", ");
+                }
+                appendStation(sb, reader.station, reader.stats);
+                first = false;
+                if (sb.length() >= 1 << 16) {
+                    System.out.print(sb);
+                    sb.setLength(0);
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            System.out.println(sb.append('}'));
+        } finally {
+            for (Spill.RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * The spill files of high-cardinality mode. Partial aggregates are
+     * appended to partition {@code hash(station) % P}; the same station can
+     * appear in a partition many times (once per flush) and is combined when
+     * the partition is sorted. A partition too large for the memory budget
+     * is first split into sub-partitions by a differently seeded hash, as
+     * often as needed. Record layout: name length, UTF-8 name, min, max, sum,
+     * count.
+     */
+    private static final class Spill implements AutoCloseable {
+        /** Rough heap cost of one table entry besides its name bytes (held by the String and the index) */
+        static final long ENTRY_OVERHEAD = 200;
+        /** Bytes buffered per partition before a worker appends them to the partition file */
+        private static final int BUFFER_SIZE = 64 * 1024;
+        /** Most sub-partitions an oversized partition is split into at once */
+        private static final int MAX_FAN_OUT = 64;
+
+        final long workerBudget;
+        private final long sortBudget;
+        private final Path dir;
+        private final FileChannel[] channels;
+        private final AtomicLongArray records;
+        private final AtomicBoolean spilled = new AtomicBoolean();
+
+        Spill(Path dir, int partitions, long workerBudget, long sortBudget) throws IOException {
+            this.dir = dir;
+            this.workerBudget = workerBudget;
+            this.sortBudget = sortBudget;
+            this.channels = new FileChannel[partitions];
+            this.records = new AtomicLongArray(partitions);
+            for (int p = 0; p < partitions; p++) {
+                channels[p] = FileChannel.open(partitionFile(p),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+        }
+
+        private Path partitionFile(int partition) {
+            return partitionFile(String.valueOf(partition));
+        }
+
+        private Path partitionFile(String id) {
+            return dir.resolve("partition-" + id + ".bin");
+        }
+
+        boolean spilled() {
+            return spilled.get();
+        }
+
+        /**
+         * Appends the partial aggregates of one worker's table to the partitions.
+         */
+        void write(Map<String, StationStats> table) throws IOException {
+            spilled.set(true);
+            ByteBuffer[] buffers = new ByteBuffer[channels.length];
+            for (Map.Entry<String, StationStats> entry : table.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                int p = Math.floorMod(entry.getKey().hashCode(), channels.length);
+                int length = Integer.BYTES + name.length + 3 * Double.BYTES + Long.BYTES;
+                ByteBuffer buffer = buffers[p];
+                if (buffer == null) {
+                    buffer = buffers[p] = ByteBuffer.allocate(Math.max(BUFFER_SIZE, length));
+                } else if (buffer.remaining() < length) {
+                    append(p, buffer);
+                    if (buffer.capacity() < length) {
+                        buffer = buffers[p] = ByteBuffer.allocate(length);
+                    }
+                }
+                StationStats stats = entry.getValue();
+                buffer.putInt(name.length).put(name)
+                      .putDouble(stats.getMin()).putDouble(stats.getMax())
+                      .putDouble(stats.getSum()).putLong(stats.getCount());
+                records.incrementAndGet(p);
+            }
+            for (int p = 0; p < buffers.length; p++) {
+                if (buffers[p] != null) {
+                    append(p, buffers[p]);
+                }
+            }
+        }
+
+        private void append(int partition, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            FileChannel channel = channels[partition];
+            synchronized (channel) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            buffer.clear();
+        }
+
+        void finishWriting() throws IOException {
+            close();
+        }
+
+        /**
+         * Upper bound on the heap needed to aggregate a partition, assuming
+         * every record is a distinct station.
+         */
+        long estimatedBytes(int partition) throws IOException {
+            return Files.size(partitionFile(partition)) + records.get(partition) * ENTRY_OVERHEAD;
+        }
+
+        /**
+         * Combines the records of one partition into sorted runs, one per
+         * sub-partition if it had to be split. Runs hold disjoint stations.
+         */
+        List<Path> sortPartition(int partition) throws IOException {
+            List<Path> runs = new ArrayList<>();
+            sortRecords(String.valueOf(partition), records.get(partition), 0, runs);
+            return runs;
+        }
+
+        /**
+         * Aggregates the partition file {@code id} in memory if it fits the
+         * budget; otherwise splits it by a hash seeded with the depth and
+         * sorts the parts one after the other.
+         */
+        private void sortRecords(String id, long count, int depth, List<Path> runs) throws IOException {
+            Path file = partitionFile(id);
+            long estimated = Files.size(file) + count * ENTRY_OVERHEAD;
+            if (estimated <= sortBudget || count <= 1) {
+                runs.add(sortInMemory(id, count));
+                return;
+            }
+
+            int fanOut = (int) Math.min(MAX_FAN_OUT, Math.max(2, 2 * (estimated / sortBudget)));
+            long[] counts = new long[fanOut];
+            DataOutputStream[] outs = new DataOutputStream[fanOut];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(file), BUFFER_SIZE))) {
+                for (long r = count; r > 0; r--) {
+                    byte[] name = new byte[in.readInt()];
+                    in.readFully(name);
+                    int h = (Arrays.hashCode(name) + depth) * 0x9E3779B9;
+                    int part = Math.floorMod(h ^ (h >>> 16), fanOut);
+                    if (outs[part] == null) {
+                        outs[part] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                                partitionFile(id + "." + part), StandardOpenOption.CREATE_NEW), BUFFER_SIZE));
+                    }
+                    outs[part].writeInt(name.length);
+                    outs[part].write(name);
+                    outs[part].writeDouble(in.readDouble());
+                    outs[part].writeDouble(in.readDouble());
+                    outs[part].writeDouble(in.readDouble());
+                    outs[part].writeLong(in.readLong());
+                    counts[part]++;
+                }
+            } finally {
+                for (DataOutputStream out : outs) {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+            Files.delete(file);
+
+            for (int part = 0; part < fanOut; part++) {
+                String subId = id + "." + part;
+                if (counts[part] == count) {
+                    // Every record hashed alike, i.e. (nearly) a single station: splitting cannot help
+                    runs.add(sortInMemory(subId, count));
+                } else if (counts[part] > 0) {
+                    sortRecords(subId, counts[part], depth + 1, runs);
+                }
+            }
+        }
+
+        /**
+         * Combines the records of one partition file and writes them sorted
+         * by station name to a run file, in the same record layout.
+         */
+        private Path sortInMemory(String id, long count) throws IOException {
+            Map<String, StationStats> table = new HashMap<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(partitionFile(id)), BUFFER_SIZE))) {
+                for (long r = count; r > 0; r--) {
+                    byte[] name = new byte[in.readInt()];
+                    in.readFully(name);
+                    StationStats stats = new StationStats(in.readDouble(), in.readDouble(), in.readDouble(), in.readLong());
+                    table.merge(new String(name, StandardCharsets.UTF_8), stats, (a, b) -> {
+                        a.merge(b);
+                        return a;
+                    });
+                }
+            }
+            Files.delete(partitionFile(id));
+
+            List<String> stations = new ArrayList<>(table.keySet());
+            Collections.sort(stations);
+            Path run = dir.resolve("run-" + id + ".bin");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(run, StandardOpenOption.CREATE_NEW), BUFFER_SIZE))) {
+                for (String station : stations) {
+                    byte[] name = station.getBytes(StandardCharsets.UTF_8);
+                    StationStats stats = table.get(station);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeDouble(stats.getMin());
+                    out.writeDouble(stats.getMax());
+                    out.writeDouble(stats.getSum());
+                    out.writeLong(stats.getCount());
+                }
+            }
+            return run;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+
+        /**
+         * Sequential reader over a sorted run, positioned on one station at a time.
+         */
+        static final class RunReader implements AutoCloseable {
+            private final DataInputStream in;
+            String station;
+            StationStats stats;
+
+            RunReader(Path run) throws IOException {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+            }
+
+            boolean next() throws IOException {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return false;
+                }
+                byte[] name = new byte[length];
+                in.readFully(name);
+                station = new String(name, StandardCharsets.UTF_8);
+                stats = new StationStats(in.readDouble(), in.readDouble(), in.readDouble(), in.readLong());
+                return true;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        }
+    }
+
+    private static long nextLine(MemorySegment file, long pos, long end) {
+        while (pos < end && file.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+
+    /**
+     * Parses a plain decimal such as "-12.3" straight from the mapped bytes.
+     * The value is built as an exact integer mantissa and divided once by a
+     * power of ten, which rounds exactly like Double.parseDouble. Anything
+     * else (exponents, very long digits) falls back to Double.parseDouble.
+     *
+     * @return the value, or NaN if the field is not a number
+     */
+    private static double parseTemperature(MemorySegment file, long start, long end) {
+        if (end > start && file.get(ValueLayout.JAVA_BYTE, end - 1) == '\r') {
+            end--;
+        }
+        long pos = start;
+        boolean negative = false;
+        if (pos < end && file.get(ValueLayout.JAVA_BYTE, pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            byte b = file.get(ValueLayout.JAVA_BYTE, pos);
+            if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return parseFallback(file, start, end);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private static double parseFallback(MemorySegment file, long start, long end) {
+        byte[] field = file.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE);
+        try {
+            return Double.parseDouble(new String(field, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
     }
 }
@@ -4,12 +4,29 @@
 
 package assistantpkg;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.TreeMap;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The WeatherStationProcessor program processes a large text file containing weather data.
@@ -18,9 +35,15 @@ import java.util.TreeMap;
  *
  * <p>Usage:
  * <pre>
- *     java assistantpkg.WeatherStationProcessor inputFileName.txt
+ *     java assistantpkg.WeatherStationProcessor [--cache[=dir]] [--cache-max-bytes=N] inputFileName.txt
  * </pre>
  *
+ * <p>With {@code --cache} the result is kept in an on-disk cache (by default
+ * {@code ~/.cache/assistantpkg}) keyed by a fingerprint of the input: its path, size,
+ * modification time and a hash of sampled blocks. Rerunning on an unchanged file prints the
+ * cached result without reading the whole file. The cache is limited to
+ * {@code --cache-max-bytes} (default 64 MB); least recently used entries are evicted first.
+ *
  * <p>File Format:
  * Each row in the input file should have the format:
  * <pre>
@@ -36,10 +59,12 @@ import java.util.TreeMap;
  * <p>Performance Optimizations:
  * This program is optimized for speed by:
  * <ul>
- *     <li>Using efficient I/O with BufferedReader.</li>
- *     <li>Utilizing a HashMap for constant-time access to station data.</li>
- *     <li>Minimizing object creation within the processing loop.</li>
- *     <li>Employing a TreeMap at the end to sort the stations alphabetically.</li>
+ *     <li>Reading raw bytes in large blocks instead of decoding lines into Strings.</li>
+ *     <li>Using an open-addressing table keyed on the station name bytes; the hash is computed
+ *         while scanning for the delimiter, so the hot loop allocates nothing per row.</li>
+ *     <li>Creating a String only once per distinct station, for the sorted output.</li>
+ *     <li>Sorting the stations with a parallel MSD radix sort over their UTF-8 bytes instead of
+ *         String comparisons in a TreeMap.</li>
  *     <li>Leveraging modern Java features available in Java 17.</li>
  * </ul>
  *
@@ -98,76 +123,576 @@ public class WeatherStationProcessor {
     }
 
     /**
-     * The main method processes the input file and computes temperature statistics per station.
-     *
-     * @param args Command-line arguments where args[0] is the input file name.
+     * Open-addressing hash table keyed on the raw UTF-8 bytes of the station name.
+     * Lookups compare the cached hash first and then the bytes in place, so a row
+     * for an already-known station does not allocate.
      */
-    public static void main(String[] args) {
-        // Validate command-line arguments
-        if (args.length < 1) {
-            System.err.println("Usage: java assistantpkg.WeatherStationProcessor <inputFileName>");
-            System.exit(1);
+    private static final class StationTable {
+        private byte[][] keys;
+        private int[] hashes;
+        private TemperatureStats[] values;
+        private int size;
+
+        StationTable(int capacity) {
+            keys = new byte[capacity][];
+            hashes = new int[capacity];
+            values = new TemperatureStats[capacity];
         }
 
-        String inputFileName = args[0];
-        Map<String, TemperatureStats> stationData = new HashMap<>();
+        /**
+         * Adds a temperature reading to the station whose name is {@code buf[offset..offset+length)}.
+         *
+         * @param buf         The buffer holding the name bytes.
+         * @param offset      The start of the name.
+         * @param length      The length of the name in bytes.
+         * @param hash        The hash of the name, as computed during the delimiter scan.
+         * @param temperature The temperature reading.
+         */
+        void add(byte[] buf, int offset, int length, int hash, double temperature) {
+            int mask = keys.length - 1;
+            int index = mix(hash) & mask;
+            while (true) {
+                byte[] key = keys[index];
+                if (key == null) {
+                    // First reading for this station: this is the only place a key is copied
+                    keys[index] = Arrays.copyOfRange(buf, offset, offset + length);
+                    hashes[index] = hash;
+                    values[index] = new TemperatureStats(temperature);
+                    if (++size * 2 > keys.length) {
+                        resize();
+                    }
+                    return;
+                }
+                if (hashes[index] == hash && key.length == length
+                        && Arrays.equals(key, 0, length, buf, offset, offset + length)) {
+                    values[index].update(temperature);
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        }
 
-        // Read and process the input file
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFileName), 16 * 1024)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Ignore comment lines
-                if (line.startsWith("#")) {
+        private void resize() {
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            TemperatureStats[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[oldKeys.length * 2];
+            values = new TemperatureStats[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
                     continue;
                 }
+                int index = mix(oldHashes[i]) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                hashes[index] = oldHashes[i];
+                values[index] = oldValues[i];
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Returns the occupied slots ordered by station name, in the order of {@link String#compareTo}.
+         *
+         * @return The slot indices, sorted.
+         */
+        int[] sortedSlots() {
+            int[] order = new int[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    order[n++] = i;
+                }
+            }
+            Utf8RadixSort.sort(keys, order);
+            return order;
+        }
+
+        /**
+         * Appends {@code name=min/mean/max} for every station, in the given order, separated by ", ".
+         *
+         * @param order  The slots to write, as returned by {@link #sortedSlots()}.
+         * @param output The builder to append to.
+         */
+        void appendTo(int[] order, StringBuilder output) {
+            for (int i = 0; i < order.length; i++) {
+                if (i > 0) {
+                    output.append(", ");
+                }
+                output.append(new String(keys[order[i]], StandardCharsets.UTF_8)).append("=").append(values[order[i]]);
+            }
+        }
+    }
+
+    /**
+     * Most-significant-digit radix sort of UTF-8 keys. Each pass distributes a range by the byte at the
+     * current depth into 257 buckets (the first one for keys that end there) and recurses into the buckets;
+     * small ranges finish with an insertion sort. Buckets of at least {@link #PARALLEL_THRESHOLD} keys are
+     * sorted as fork/join tasks.
+     *
+     * <p>UTF-8 byte order equals code point order, whereas {@link String#compareTo} compares UTF-16 code
+     * units, in which supplementary characters (lead bytes F0-F4) sort before U+E000..U+FFFF (lead bytes
+     * EE and EF). Bytes are therefore compared by a rank that moves F0-F4 in front of EE and EF. The two
+     * orders agree for valid UTF-8; malformed names are ordered by their bytes.
+     */
+    private static final class Utf8RadixSort {
+        private static final int INSERTION_THRESHOLD = 32;
+        private static final int PARALLEL_THRESHOLD = 1 << 14;
+        private static final int BUCKETS = 257;
+        private static final int[] RANK = new int[256];
+
+        static {
+            for (int b = 0; b < 256; b++) {
+                RANK[b] = b;
+            }
+            for (int b = 0xF0; b <= 0xF4; b++) {
+                RANK[b] = b - 2;
+            }
+            RANK[0xEE] = 0xF3;
+            RANK[0xEF] = 0xF4;
+        }
 
-                // Split the line into station and temperature
-                String[] parts = line.split(";");
-                if (parts.length != 2) {
-                    // Invalid line format; skip or handle as needed
+        /**
+         * Sorts {@code order}, a list of indices into {@code keys}, by the keys.
+         */
+        static void sort(byte[][] keys, int[] order) {
+            int[] scratch = new int[order.length];
+            if (order.length >= PARALLEL_THRESHOLD) {
+                new SortTask(keys, order, scratch, 0, order.length, 0).invoke();
+            } else {
+                sort(keys, order, scratch, 0, order.length, 0, false);
+            }
+        }
+
+        @SuppressWarnings("serial") // never serialized
+        private static final class SortTask extends RecursiveAction {
+            private final byte[][] keys;
+            private final int[] order;
+            private final int[] scratch;
+            private final int from;
+            private final int to;
+            private final int depth;
+
+            SortTask(byte[][] keys, int[] order, int[] scratch, int from, int to, int depth) {
+                this.keys = keys;
+                this.order = order;
+                this.scratch = scratch;
+                this.from = from;
+                this.to = to;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                sort(keys, order, scratch, from, to, depth, true);
+            }
+        }
+
+        private static void sort(byte[][] keys, int[] order, int[] scratch, int from, int to, int depth,
+                                 boolean parallel) {
+            if (to - from <= INSERTION_THRESHOLD) {
+                insertionSort(keys, order, from, to, depth);
+                return;
+            }
+
+            int[] starts = new int[BUCKETS + 1];
+            for (int i = from; i < to; i++) {
+                starts[bucket(keys[order[i]], depth) + 1]++;
+            }
+            for (int b = 0; b < BUCKETS; b++) {
+                starts[b + 1] += starts[b];
+            }
+            int[] next = Arrays.copyOf(starts, BUCKETS);
+            for (int i = from; i < to; i++) {
+                scratch[from + next[bucket(keys[order[i]], depth)]++] = order[i];
+            }
+            System.arraycopy(scratch, from, order, from, to - from);
+
+            // Bucket 0 holds keys that end at this depth; they are equal, so it needs no sorting
+            List<SortTask> forked = new ArrayList<>();
+            for (int b = 1; b < BUCKETS; b++) {
+                int bucketFrom = from + starts[b];
+                int bucketTo = from + starts[b + 1];
+                if (bucketTo - bucketFrom < 2) {
                     continue;
                 }
+                if (parallel && bucketTo - bucketFrom >= PARALLEL_THRESHOLD) {
+                    SortTask task = new SortTask(keys, order, scratch, bucketFrom, bucketTo, depth + 1);
+                    task.fork();
+                    forked.add(task);
+                } else {
+                    sort(keys, order, scratch, bucketFrom, bucketTo, depth + 1, false);
+                }
+            }
+            for (SortTask task : forked) {
+                task.join();
+            }
+        }
+
+        private static int bucket(byte[] key, int depth) {
+            return depth < key.length ? RANK[key[depth] & 0xFF] + 1 : 0;
+        }
+
+        private static void insertionSort(byte[][] keys, int[] order, int from, int to, int depth) {
+            for (int i = from + 1; i < to; i++) {
+                int current = order[i];
+                int j = i - 1;
+                while (j >= from && compare(keys[order[j]], keys[current], depth) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = current;
+            }
+        }
+
+        /**
+         * Compares two keys that are known to be equal before {@code depth}.
+         */
+        private static int compare(byte[] a, byte[] b, int depth) {
+            int mismatch = Arrays.mismatch(a, depth, a.length, b, depth, b.length);
+            if (mismatch < 0) {
+                return 0;
+            }
+            if (depth + mismatch == a.length || depth + mismatch == b.length) {
+                return a.length - b.length;
+            }
+            return RANK[a[depth + mismatch] & 0xFF] - RANK[b[depth + mismatch] & 0xFF];
+        }
+    }
+
+    /**
+     * On-disk cache of formatted results. Each entry is one file named after the fingerprint
+     * of the input it was computed from. Entries are written to a temporary file and moved into
+     * place, so readers never see a partial entry. A hit touches the entry's modification time,
+     * which is what eviction orders by.
+     */
+    private static final class ResultCache {
+        private static final String SUFFIX = ".result";
+        private static final String HEADER = "assistantpkg-result-v1";
+        private static final int SAMPLE_BLOCKS = 16;
+        private static final int SAMPLE_SIZE = 64 * 1024;
+
+        private final Path directory;
+        private final long maxBytes;
+
+        ResultCache(Path directory, long maxBytes) {
+            this.directory = directory;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Computes the cache key of a file from its real path, size, modification time and
+         * the contents of {@value #SAMPLE_BLOCKS} evenly spaced blocks (including the first and last).
+         *
+         * @param file The input file.
+         * @return The fingerprint as a hex string.
+         * @throws IOException If the file cannot be read.
+         */
+        static String fingerprint(Path file) throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            Path realPath = file.toRealPath();
+            long size = Files.size(realPath);
+            long modified = Files.getLastModifiedTime(realPath).to(TimeUnit.NANOSECONDS);
+            digest.update(realPath.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(ByteBuffer.allocate(2 * Long.BYTES).putLong(size).putLong(modified).flip());
+
+            try (FileChannel channel = FileChannel.open(realPath, StandardOpenOption.READ)) {
+                ByteBuffer block = ByteBuffer.allocate(SAMPLE_SIZE);
+                long last = Math.max(0, size - SAMPLE_SIZE);
+                for (int i = 0; i < SAMPLE_BLOCKS; i++) {
+                    long position = last * i / (SAMPLE_BLOCKS - 1);
+                    block.clear();
+                    while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+                        // keep reading until the block is full or the file ends
+                    }
+                    digest.update(block.flip());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Looks up a cached result and marks it as recently used.
+         *
+         * @param key The input fingerprint.
+         * @return The cached result, or null if there is none.
+         */
+        String get(String key) {
+            Path entry = directory.resolve(key + SUFFIX);
+            try {
+                String content = Files.readString(entry, StandardCharsets.UTF_8);
+                int newline = content.indexOf('\n');
+                if (newline < 0 || !content.substring(0, newline).equals(HEADER)) {
+                    return null;
+                }
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                return content.substring(newline + 1);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable cache entry " + entry + ": " + e.getMessage());
+                return null;
+            }
+        }
 
-                String station = parts[0];
-                double temperature;
+        /**
+         * Stores a result atomically and evicts the least recently used entries beyond the size limit.
+         * Failures are reported but never fail the run.
+         *
+         * @param key    The input fingerprint.
+         * @param result The formatted result.
+         */
+        void put(String key, String result) {
+            try {
+                Files.createDirectories(directory);
+                Path temp = Files.createTempFile(directory, key, ".tmp");
                 try {
-                    temperature = Double.parseDouble(parts[1]);
-                } catch (NumberFormatException e) {
-                    // Invalid temperature format; skip or handle as needed
-                    continue;
+                    Files.writeString(temp, HEADER + "\n" + result, StandardCharsets.UTF_8);
+                    Path entry = directory.resolve(key + SUFFIX);
+                    try {
+                        Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(temp);
                 }
+                evict();
+            } catch (IOException e) {
+                System.err.println("Could not store result in cache " + directory + ": " + e.getMessage());
+            }
+        }
 
-                // Update the statistics for the station
-                TemperatureStats stats = stationData.get(station);
-                if (stats == null) {
-                    stationData.put(station, new TemperatureStats(temperature));
-                } else {
-                    stats.update(temperature);
+        private void evict() throws IOException {
+            record Entry(Path path, long size, FileTime used) {
+            }
+            List<Entry> entries = new ArrayList<>();
+            long total = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path path : stream) {
+                    try {
+                        Entry entry = new Entry(path, Files.size(path), Files.getLastModifiedTime(path));
+                        entries.add(entry);
+                        total += entry.size();
+                    } catch (NoSuchFileException e) {
+                        // Evicted concurrently by another run
+                    }
                 }
             }
+            entries.sort(Comparator.comparing(Entry::used));
+            for (int i = 0; i < entries.size() && total > maxBytes; i++) {
+                Files.deleteIfExists(entries.get(i).path());
+                total -= entries.get(i).size();
+            }
+        }
+    }
+
+    /**
+     * The main method processes the input file and computes temperature statistics per station.
+     *
+     * @param args Command-line arguments: optional cache options followed by the input file name.
+     */
+    public static void main(String[] args) {
+        // Validate command-line arguments
+        if (args.length < 1) {
+            System.err.println("Usage: java assistantpkg.WeatherStationProcessor [--cache[=dir]] [--cache-max-bytes=N] <inputFileName>");
+            System.exit(1);
+        }
+
+        String inputFileName = args[args.length - 1];
+        Path cacheDirectory = null;
+        long cacheMaxBytes = 64L * 1024 * 1024;
+        for (int i = 0; i < args.length - 1; i++) {
+            String arg = args[i];
+            if (arg.equals("--cache")) {
+                cacheDirectory = Path.of(System.getProperty("user.home"), ".cache", "assistantpkg");
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = Path.of(arg.substring("--cache=".length()));
+            } else if (arg.startsWith("--cache-max-bytes=")) {
+                cacheMaxBytes = Long.parseLong(arg.substring("--cache-max-bytes=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        try {
+            if (cacheDirectory == null) {
+                System.out.println(aggregate(inputFileName));
+                return;
+            }
+
+            ResultCache cache = new ResultCache(cacheDirectory, cacheMaxBytes);
+            Path input = Path.of(inputFileName);
+            String key = ResultCache.fingerprint(input);
+            String output = cache.get(key);
+            if (output == null) {
+                output = aggregate(inputFileName);
+                // Do not cache a result for a file that changed while it was being read
+                if (key.equals(ResultCache.fingerprint(input))) {
+                    cache.put(key, output);
+                }
+            }
+            System.out.println(output);
         } catch (IOException e) {
             System.err.println("Error reading the input file: " + e.getMessage());
             System.exit(1);
         }
+    }
 
-        // Sort the stations alphabetically using TreeMap
-        Map<String, TemperatureStats> sortedStationData = new TreeMap<>(stationData);
+    /**
+     * Reads the whole input file and formats the statistics of every station.
+     *
+     * @param inputFileName The input file name.
+     * @return The formatted result, e.g. {@code {Abha=5.0/18.0/27.4, ...}}.
+     * @throws IOException If the input cannot be read.
+     */
+    private static String aggregate(String inputFileName) throws IOException {
+        StationTable stationData = new StationTable(1024);
+
+        // Read and process the input file
+        try (InputStream in = new FileInputStream(inputFileName)) {
+            process(in, stationData);
+        }
 
-        // Build the output string
+        // Sort the stations alphabetically and write them in that order
+        int[] order = stationData.sortedSlots();
         StringBuilder output = new StringBuilder();
         output.append("{");
-        boolean first = true;
-        for (Map.Entry<String, TemperatureStats> entry : sortedStationData.entrySet()) {
-            if (!first) {
-                output.append(", ");
+        stationData.appendTo(order, output);
+        output.append("}");
+        return output.toString();
+    }
+
+    /**
+     * Reads the input in large blocks and feeds every complete line to the station table.
+     * A line cut by the end of a block is moved to the front of the buffer and completed
+     * by the next read.
+     *
+     * @param in          The input stream.
+     * @param stationData The table that accumulates the statistics.
+     * @throws IOException If the input cannot be read.
+     */
+    private static void process(InputStream in, StationTable stationData) throws IOException {
+        byte[] buf = new byte[1 << 20];
+        int limit = 0;
+        int read;
+        while ((read = in.read(buf, limit, buf.length - limit)) != -1 || limit > 0) {
+            boolean eof = read == -1;
+            if (!eof) {
+                limit += read;
+            }
+
+            int pos = 0;
+            while (pos < limit) {
+                int lineStart = pos;
+
+                // Scan for the delimiter, hashing the station name on the way
+                int hash = 0;
+                byte b = 0;
+                while (pos < limit && (b = buf[pos]) != ';' && b != '\n') {
+                    hash = 31 * hash + b;
+                    pos++;
+                }
+                int nameEnd = pos;
+                while (pos < limit && buf[pos] != '\n') {
+                    pos++;
+                }
+                if (pos == limit && !eof) {
+                    // Incomplete line; finish it after the next read
+                    pos = lineStart;
+                    break;
+                }
+                int lineEnd = pos++;
+
+                // Ignore comment lines and lines without a delimiter
+                if (buf[lineStart] == '#' || nameEnd == lineEnd) {
+                    continue;
+                }
+
+                double temperature = parseTemperature(buf, nameEnd + 1, lineEnd);
+                if (Double.isNaN(temperature)) {
+                    // Invalid temperature format; skip
+                    continue;
+                }
+                stationData.add(buf, lineStart, nameEnd - lineStart, hash, temperature);
+            }
+
+            if (eof) {
+                break;
+            }
+            // Keep the partial line and make room for the next read
+            limit -= pos;
+            System.arraycopy(buf, pos, buf, 0, limit);
+            if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
             }
-            output.append(entry.getKey()).append("=").append(entry.getValue().toString());
-            first = false;
         }
-        output.append("}");
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * Parses a decimal temperature such as {@code -12.3} directly from the bytes.
+     * The digits are collected into an exact integer and divided once by a power of ten,
+     * which gives the same result as {@link Double#parseDouble(String)}. Any other form
+     * falls back to {@code Double.parseDouble}.
+     *
+     * @param buf   The buffer holding the field.
+     * @param start The start of the field.
+     * @param end   The end of the field (exclusive).
+     * @return The temperature, or NaN if the field is not a valid number.
+     */
+    private static double parseTemperature(byte[] buf, int start, int end) {
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        int pos = start;
+        boolean negative = pos < end && buf[pos] == '-';
+        if (negative) {
+            pos++;
+        }
 
-        // Print the result
-        System.out.println(output.toString());
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            byte b = buf[pos];
+            if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                try {
+                    return Double.parseDouble(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
     }
 }
-
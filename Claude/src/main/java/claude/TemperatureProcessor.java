@@ -9,7 +9,8 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -21,7 +22,7 @@ import java.util.stream.Stream;
  * 
  * Optimization Strategies:
  * - Concurrent processing with thread pool
- * - ConcurrentHashMap for thread-safe aggregations
+ * - Thread-confined partial aggregation, merged once at the end
  * - Minimal object creation
  * - Efficient parsing
  * 
@@ -62,26 +63,39 @@ public class TemperatureProcessor {
     }
 
     /**
-     * Processes temperature file using parallel streams and thread-safe aggregation.
+     * Processes temperature file using parallel streams and thread-confined aggregation.
+     * Every worker thread aggregates into its own private map, so the hot loop needs
+     * neither a shared map nor synchronisation; the partial maps are merged once
+     * after the stream has completed.
      * 
      * @param filePath Path to input temperature measurement file
-     * @return Concurrent map of station statistics
+     * @return Map of station statistics
      * @throws IOException If file reading fails
      * @throws InterruptedException If parallel processing is interrupted
      */
     private static Map<String, StationStats> processFile(String filePath) 
         throws IOException, InterruptedException {
 
-        // Concurrent, thread-safe aggregation map
-        Map<String, StationStats> stationData = new ConcurrentHashMap<>();
+        // One partial map per worker thread, registered on first use
+        Queue<Map<String, StationStats>> partials = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Map<String, StationStats>> workerData = ThreadLocal.withInitial(() -> {
+            Map<String, StationStats> partial = new HashMap<>();
+            partials.add(partial);
+            return partial;
+        });
 
         try (BufferedReader reader = Files.newBufferedReader(Path.of(filePath))) {
             reader.lines()
                 .parallel()
                 .filter(line -> !line.startsWith("#"))
-                .forEach(line -> processLine(line, stationData));
+                .forEach(line -> processLine(line, workerData.get()));
         }
 
+        // Final merge of the per-worker partials
+        Map<String, StationStats> stationData = new HashMap<>();
+        for (Map<String, StationStats> partial : partials) {
+            partial.forEach((station, stats) -> stationData.merge(station, stats, StationStats::merge));
+        }
         return stationData;
     }
 
@@ -89,27 +103,28 @@ public class TemperatureProcessor {
      * Processes individual temperature measurement line.
      * 
      * @param line Raw measurement line
-     * @param stationData Concurrent map to update
+     * @param stationData Thread-confined map to update
      */
     private static void processLine(String line, 
         Map<String, StationStats> stationData) {
         
-        String[] parts = line.split(";");
-        if (parts.length != 2) return;
-
-        String station = parts[0];
-        double temperature = Double.parseDouble(parts[1]);
-
-        stationData.merge(station, 
-            new StationStats(temperature),
-            (existing, newStats) -> {
-                existing.min = Math.min(existing.min, newStats.min);
-                existing.max = Math.max(existing.max, newStats.max);
-                existing.sum += newStats.sum;
-                existing.count++;
-                return existing;
-            }
-        );
+        int separator = line.indexOf(';');
+        if (separator < 0 || line.indexOf(';', separator + 1) >= 0) return;
+
+        String station = line.substring(0, separator);
+        double temperature;
+        try {
+            temperature = Double.parseDouble(line.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return; // empty or malformed reading
+        }
+
+        StationStats stats = stationData.get(station);
+        if (stats == null) {
+            stationData.put(station, new StationStats(temperature));
+        } else {
+            stats.add(temperature);
+        }
     }
 
     /**
@@ -129,6 +144,21 @@ public class TemperatureProcessor {
             this.count = 1;
         }
 
+        void add(double temperature) {
+            if (temperature < min) min = temperature;
+            if (temperature > max) max = temperature;
+            sum += temperature;
+            count++;
+        }
+
+        StationStats merge(StationStats other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            return this;
+        }
+
         public double mean() {
             return count > 0 ? sum / count : 0.0;
         }
@@ -1,25 +1,65 @@
 /**
  * Java program to process a large text file containing weather data.
  * Version: 17
+ *
+ * Usage:
+ *   java assistant.WeatherDataProcessor <input_file>
+ *   java assistant.WeatherDataProcessor --shards=N [--retries=R] [--timeout=SECONDS] [--jvm-opt=OPT]... <input_file>
+ *
+ * With --shards the program acts as a coordinator: it splits the input into N
+ * newline-aligned byte ranges and launches one worker JVM per range (the same class
+ * with --worker --offset/--length). Each worker writes its partial aggregate in a
+ * compact binary form to a file in a private temporary directory; the coordinator
+ * merges the partials and prints the result. A shard whose JVM fails, or runs longer
+ * than the timeout (default 3600 seconds), is relaunched as soon as that is known, up
+ * to R times (default 2), without redoing the others. Worker JVMs get the options this
+ * JVM was started with, followed by any --jvm-opt, which passes an option such as
+ * -Xmx2g to every worker JVM.
  */
 package assistant;
 
 import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class WeatherDataProcessor {
 
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
 
+    /** Identifies a partial aggregate file written by a worker */
+    private static final int PARTIAL_MAGIC = 0x57445031;
+
     public static void main(String[] args) {
+        if (args.length > 1) {
+            runSharded(args);
+            return;
+        }
         if (args.length != 1) {
-            System.err.println("Usage: java WeatherDataProcessor <input_file>");
+            System.err.println("Usage: java WeatherDataProcessor [--shards=N [--retries=R] [--timeout=SECONDS] [--jvm-opt=OPT]...] <input_file>");
             System.exit(1);
         }
 
@@ -60,13 +100,7 @@ public class WeatherDataProcessor {
         }
 
         stationData.merge(station, new double[]{temperature, temperature, temperature, 1},
-                (existing, newValues) -> {
-                    existing[0] = Math.min(existing[0], newValues[0]); // min
-                    existing[1] += newValues[1]; // sum
-                    existing[2] = Math.max(existing[2], newValues[2]); // max
-                    existing[3] += newValues[3]; // count
-                    return existing;
-                });
+                WeatherDataProcessor::merge);
     }
 
     private static void printResults(Map<String, double[]> stationData) {
@@ -83,4 +117,321 @@ public class WeatherDataProcessor {
         result.append("}");
         System.out.println(result);
     }
+
+    /**
+     * Entry point for the coordinator and worker modes.
+     */
+    private static void runSharded(String[] args) {
+        String inputFile = args[args.length - 1];
+        boolean worker = false;
+        int shards = 0;
+        int retries = 2;
+        long timeout = 3600;
+        long offset = 0;
+        long length = -1;
+        Path output = null;
+        List<String> jvmOptions = new ArrayList<>();
+        for (int i = 0; i < args.length - 1; i++) {
+            String arg = args[i];
+            if (arg.equals("--worker")) {
+                worker = true;
+            } else if (arg.startsWith("--shards=")) {
+                shards = Integer.parseInt(arg.substring("--shards=".length()));
+            } else if (arg.startsWith("--retries=")) {
+                retries = Integer.parseInt(arg.substring("--retries=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                timeout = Long.parseLong(arg.substring("--timeout=".length()));
+            } else if (arg.startsWith("--jvm-opt=")) {
+                jvmOptions.add(arg.substring("--jvm-opt=".length()));
+            } else if (arg.startsWith("--offset=")) {
+                offset = Long.parseLong(arg.substring("--offset=".length()));
+            } else if (arg.startsWith("--length=")) {
+                length = Long.parseLong(arg.substring("--length=".length()));
+            } else if (arg.startsWith("--output=")) {
+                output = Path.of(arg.substring("--output=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        try {
+            if (worker) {
+                if (length < 0 || output == null) {
+                    System.err.println("Worker mode needs --offset, --length and --output");
+                    System.exit(1);
+                }
+                writePartial(processRange(Path.of(inputFile), offset, offset + length), output);
+            } else {
+                if (shards < 1 || timeout < 1) {
+                    System.err.println("--shards and --timeout must be at least 1");
+                    System.exit(1);
+                }
+                printResults(coordinate(Path.of(inputFile), shards, retries, TimeUnit.SECONDS.toNanos(timeout),
+                        jvmOptions));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(2);
+        }
+    }
+
+    /** A worker JVM that has exited, with the shard it was started for */
+    private record Exit(int shard, Process process) {
+    }
+
+    /**
+     * Splits the file, runs one worker JVM per shard and merges the partials. Exits are handled in
+     * the order they happen, so a failed shard is relaunched at once; a shard that is still running
+     * when its deadline passes is killed and relaunched too.
+     */
+    private static Map<String, double[]> coordinate(Path inputFile, int shards, int retries, long timeoutNanos,
+                                                    List<String> jvmOptions) throws IOException, InterruptedException {
+        List<long[]> ranges = splitRanges(inputFile, shards);
+        Path workDir = Files.createTempDirectory("weather-shards");
+        Process[] workers = new Process[ranges.size()];
+        long[] deadlines = new long[workers.length];
+        int[] attempts = new int[workers.length];
+        BlockingQueue<Exit> exits = new LinkedBlockingQueue<>();
+        try {
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = launchWorker(inputFile, ranges.get(i), partialFile(workDir, i), jvmOptions);
+                deadlines[i] = System.nanoTime() + timeoutNanos;
+                watch(i, workers[i], exits);
+            }
+
+            int running = workers.length;
+            while (running > 0) {
+                long next = Long.MAX_VALUE;
+                for (int i = 0; i < workers.length; i++) {
+                    if (workers[i] != null) {
+                        next = Math.min(next, deadlines[i]);
+                    }
+                }
+                Exit exit = exits.poll(Math.max(0, next - System.nanoTime()), TimeUnit.NANOSECONDS);
+                List<Integer> failed = new ArrayList<>();
+                if (exit == null) {
+                    long now = System.nanoTime();
+                    for (int i = 0; i < workers.length; i++) {
+                        if (workers[i] != null && deadlines[i] <= now) {
+                            System.err.println("Shard " + i + " timed out");
+                            // Dead before its replacement starts writing the same partial file
+                            workers[i].destroyForcibly().waitFor();
+                            failed.add(i);
+                        }
+                    }
+                } else if (exit.process() == workers[exit.shard()]) {
+                    // (Exits of workers that were already replaced after a timeout are ignored)
+                    if (exit.process().exitValue() == 0 && Files.exists(partialFile(workDir, exit.shard()))) {
+                        workers[exit.shard()] = null;
+                        running--;
+                    } else {
+                        System.err.println("Shard " + exit.shard() + " failed");
+                        failed.add(exit.shard());
+                    }
+                }
+                for (int i : failed) {
+                    if (++attempts[i] > retries) {
+                        throw new IOException("shard " + i + " failed after " + attempts[i] + " attempts");
+                    }
+                    System.err.println("Retrying shard " + i);
+                    workers[i] = launchWorker(inputFile, ranges.get(i), partialFile(workDir, i), jvmOptions);
+                    deadlines[i] = System.nanoTime() + timeoutNanos;
+                    watch(i, workers[i], exits);
+                }
+            }
+
+            // Merged in shard order, so the sums do not depend on which worker finished first
+            Map<String, double[]> stationData = new TreeMap<>();
+            for (int i = 0; i < workers.length; i++) {
+                readPartial(partialFile(workDir, i)).forEach((station, data) ->
+                        stationData.merge(station, data, WeatherDataProcessor::merge));
+            }
+            return stationData;
+        } finally {
+            for (Process worker : workers) {
+                if (worker != null) {
+                    worker.destroyForcibly();
+                    worker.waitFor();
+                }
+            }
+            try (var files = Files.list(workDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    private static void watch(int shard, Process process, BlockingQueue<Exit> exits) {
+        process.onExit().thenAccept(exited -> exits.add(new Exit(shard, exited)));
+    }
+
+    private static Path partialFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".bin");
+    }
+
+    /**
+     * Starts a worker JVM for one shard, using the same java binary, JVM options and class path as
+     * this JVM. A debugger agent is not passed on, as its port can only be bound once.
+     */
+    private static Process launchWorker(Path inputFile, long[] range, Path output, List<String> jvmOptions)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-agentlib:jdwp")) {
+                command.add(option);
+            }
+        }
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(WeatherDataProcessor.class.getName());
+        command.add("--worker");
+        command.add("--offset=" + range[0]);
+        command.add("--length=" + (range[1] - range[0]));
+        command.add("--output=" + output);
+        command.add(inputFile.toString());
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * Splits the file into byte ranges that start at a line start and end just after a newline.
+     */
+    private static List<long[]> splitRanges(Path inputFile, int parts) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(256);
+            long start = 0;
+            for (int i = 1; i <= parts && start < size; i++) {
+                long end = Math.max(start, size * i / parts);
+                if (end > 0 && end < size) {
+                    end = nextLineStart(channel, end - 1, size, buffer);
+                }
+                if (end > start) {
+                    ranges.add(new long[]{start, end});
+                    start = end;
+                }
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the position just after the first newline at or after {@code pos}, or {@code size}
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long size, ByteBuffer buffer) throws IOException {
+        while (pos < size) {
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Worker: aggregates the lines in [start, end) of the file.
+     */
+    private static Map<String, double[]> processRange(Path inputFile, long start, long end) throws IOException {
+        Map<String, double[]> stationData = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            byte[] block = new byte[1 << 20];
+            int carry = 0;
+            long pos = start;
+            while (pos < end) {
+                if (carry == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(block, carry, (int) Math.min(block.length - carry, end - pos)), pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
+                int limit = carry + read;
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (block[i] == '\n') {
+                        processRangeLine(new String(block, lineStart, i - lineStart, StandardCharsets.UTF_8), stationData);
+                        lineStart = i + 1;
+                    }
+                }
+                carry = limit - lineStart;
+                System.arraycopy(block, lineStart, block, 0, carry);
+            }
+            if (carry > 0) {
+                processRangeLine(new String(block, 0, carry, StandardCharsets.UTF_8), stationData);
+            }
+        }
+        return stationData;
+    }
+
+    private static void processRangeLine(String line, Map<String, double[]> stationData) {
+        if (!line.startsWith("#")) {
+            processLine(line, stationData);
+        }
+    }
+
+    /**
+     * Writes a partial aggregate: magic, station count, then per station the UTF-8 name and
+     * min, sum, max and count. The file is written under a temporary name and then moved into
+     * place, so the coordinator never sees a half-written partial.
+     */
+    private static void writePartial(Map<String, double[]> stationData, Path output) throws IOException {
+        Path tmp = output.resolveSibling(output.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(PARTIAL_MAGIC);
+            out.writeInt(stationData.size());
+            for (Map.Entry<String, double[]> entry : stationData.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                for (double value : entry.getValue()) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+        Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, double[]> readPartial(Path partial) throws IOException {
+        Map<String, double[]> stationData = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(partial)))) {
+            if (in.readInt() != PARTIAL_MAGIC) {
+                throw new IOException("not a partial aggregate: " + partial);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                stationData.put(new String(name, StandardCharsets.UTF_8),
+                        new double[]{in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble()});
+            }
+        }
+        return stationData;
+    }
+
+    private static double[] merge(double[] existing, double[] other) {
+        existing[0] = Math.min(existing[0], other[0]); // min
+        existing[1] += other[1]; // sum
+        existing[2] = Math.max(existing[2], other[2]); // max
+        existing[3] += other[3]; // count
+        return existing;
+    }
 }
@@ -1,13 +1,17 @@
 package weatherstats;
 
 import java.io.*;
+import java.lang.foreign.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.*;
 import java.util.stream.*;
 
 /**
- * Java version: 17+
+ * Java version: 22+ (uses java.lang.foreign to map the file)
  *
  * This program processes a large text file containing weather station temperature data,
  * calculates the minimum, mean, and maximum temperature for each station, and prints the
@@ -16,32 +20,52 @@ import java.util.stream.*;
  * Input format: Each line contains `Station;Temperature` (e.g., `Hamburg;12.0`).
  * Lines starting with # are comments and are ignored.
  *
- * Usage: java weatherstats.WeatherStatsProcessor <input_file>
+ * The file is memory-mapped and streamed through a {@link RecordSpliterator} that splits on
+ * newline boundaries and hands out a reusable {@link RecordCursor} instead of a per-row object.
+ * A primitive {@link StationStatsCollector} aggregates fixed-point statistics keyed on the raw
+ * name bytes, so the parallel stream does not allocate per row.
+ *
+ * A {@link StationFilter} given by {@code --stations} and/or {@code --prefix} is pushed down into the
+ * cursor: the name bytes are checked while the line is scanned, and a line that does not match is
+ * skipped with a newline scan, before its temperature is looked at and without entering the stream.
+ *
+ * Usage: java weatherstats.WeatherStatsProcessor [--stations=A,B,...] [--prefix=P] <input_file>
+ *
+ * Both options may be repeated. A line is kept if its station is one of the listed stations (when
+ * any are listed) and starts with one of the prefixes (when any are given).
  */
 public class WeatherStatsProcessor {
 
     public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
-        if (args.length != 1) {
-            System.err.println("Usage: java weatherstats.WeatherStatsProcessor <input_file>");
+        List<String> stations = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        boolean usage = args.length < 1;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].startsWith("--stations=")) {
+                stations.addAll(List.of(args[i].substring("--stations=".length()).split(",")));
+            } else if (args[i].startsWith("--prefix=")) {
+                prefixes.add(args[i].substring("--prefix=".length()));
+            } else {
+                usage = true;
+            }
+        }
+        if (usage) {
+            System.err.println("Usage: java weatherstats.WeatherStatsProcessor [--stations=A,B,...] [--prefix=P] <input_file>");
             System.exit(1);
         }
 
-        String fileName = args[0];
+        String fileName = args[args.length - 1];
+        StationFilter filter = StationFilter.of(stations, prefixes);
 
-        // Process file using parallel streams
-        Map<String, TemperatureStats> stationStats =
-                Files.lines(Path.of(fileName))
-                        .parallel()
-                        .filter(line -> !line.startsWith("#"))
-                        .map(WeatherStatsProcessor::parseLine)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.groupingBy(
-                                StationTemperature::getStation,
-                                ConcurrentHashMap::new,
-                                Collector.of(
-                                        TemperatureStats::new,
-                                        TemperatureStats::accept,
-                                        TemperatureStats::combine)));
+        // Process file using parallel streams over the mapped file
+        Map<String, TemperatureStats> stationStats;
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            stationStats =
+                    StreamSupport.stream(new RecordSpliterator(file, 0, file.byteSize(), filter), true)
+                            .collect(new StationStatsCollector());
+        }
 
         // Prepare and sort results
         String result = stationStats.entrySet().stream()
@@ -58,79 +82,479 @@ public class WeatherStatsProcessor {
     }
 
     /**
-     * Parse a line of input into a StationTemperature object.
-     *
-     * @param line the input line
-     * @return a StationTemperature object, or null if the line is invalid
+     * A mutable view of the current line. One cursor is owned by each spliterator and is
+     * repositioned for every line, so it is only valid inside the stream callback that
+     * receives it and must never be stored.
      */
-    private static StationTemperature parseLine(String line) {
-        try {
-            String[] parts = line.split(";");
-            if (parts.length != 2) return null;
-            String station = parts[0].trim();
-            double temperature = Double.parseDouble(parts[1].trim());
-            return new StationTemperature(station, temperature);
-        } catch (Exception e) {
-            return null; // Skip invalid lines
+    private static final class RecordCursor {
+        private final MemorySegment file;
+        private final StationFilter filter;
+        private long nameStart;
+        private int nameLength;
+        private long valueStart;
+        private long valueEnd;
+        private int hash;
+
+        RecordCursor(MemorySegment file, StationFilter filter) {
+            this.file = file;
+            this.filter = filter;
+        }
+
+        /**
+         * @return true if the line has a station and a temperature and passes the filter (comments,
+         * blank lines and lines without a ';' are not valid)
+         */
+        public boolean isValid() {
+            return nameLength >= 0;
+        }
+
+        public int nameLength() {
+            return nameLength;
+        }
+
+        public int nameHash() {
+            return hash;
+        }
+
+        public byte nameByte(int i) {
+            return file.get(ValueLayout.JAVA_BYTE, nameStart + i);
+        }
+
+        public void copyName(byte[] target) {
+            MemorySegment.copy(file, ValueLayout.JAVA_BYTE, nameStart, target, 0, nameLength);
+        }
+
+        /**
+         * Decode the temperature in tenths of a degree. The common form {@code -?d+.d} is decoded
+         * straight from the bytes; anything else goes through {@link Double#parseDouble(String)}.
+         *
+         * @return the temperature in tenths, or {@link Integer#MIN_VALUE} if it is not a number
+         */
+        public int temperatureTenths() {
+            long pos = valueStart;
+            long end = valueEnd;
+            boolean negative = pos < end && file.get(ValueLayout.JAVA_BYTE, pos) == '-';
+            if (negative) {
+                pos++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (pos < end) {
+                byte b = file.get(ValueLayout.JAVA_BYTE, pos);
+                if (b < '0' || b > '9' || ++digits > 6) {
+                    break;
+                }
+                value = value * 10 + (b - '0');
+                pos++;
+            }
+            if (digits > 0 && pos + 2 == end && file.get(ValueLayout.JAVA_BYTE, pos) == '.') {
+                byte b = file.get(ValueLayout.JAVA_BYTE, pos + 1);
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    return negative ? -value : value;
+                }
+            }
+            return parseSlow();
+        }
+
+        private int parseSlow() {
+            byte[] bytes = file.asSlice(valueStart, valueEnd - valueStart).toArray(ValueLayout.JAVA_BYTE);
+            try {
+                return (int) Math.round(Double.parseDouble(new String(bytes, StandardCharsets.UTF_8).trim()) * 10);
+            } catch (NumberFormatException e) {
+                return Integer.MIN_VALUE;
+            }
+        }
+
+        /**
+         * Position the cursor on the line starting at {@code start}. A line rejected by the filter is
+         * passed over with a plain newline scan.
+         *
+         * @return the start of the next line
+         */
+        long moveTo(long start, long limit) {
+            nameStart = start;
+            nameLength = -1;
+            long pos = start;
+            if (filter != null && !filter.matchesPrefix(file, start, limit)) {
+                return skipLine(pos, limit);
+            }
+            int h = 0;
+            byte b = 0;
+            while (pos < limit && (b = file.get(ValueLayout.JAVA_BYTE, pos)) != ';' && b != '\n') {
+                h = 31 * h + b;
+                pos++;
+            }
+            long separator = pos;
+            if (filter != null && !filter.matchesStation(file, start, (int) (separator - start), h)) {
+                return skipLine(pos, limit);
+            }
+            while (pos < limit && file.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+                pos++;
+            }
+            long lineEnd = pos;
+            if (separator < lineEnd && (separator == start || file.get(ValueLayout.JAVA_BYTE, start) != '#')) {
+                nameLength = (int) (separator - start);
+                hash = h;
+                valueStart = separator + 1;
+                valueEnd = lineEnd > valueStart && file.get(ValueLayout.JAVA_BYTE, lineEnd - 1) == '\r'
+                        ? lineEnd - 1 : lineEnd;
+            }
+            return lineEnd + 1;
+        }
+
+        private long skipLine(long pos, long limit) {
+            while (pos < limit && file.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+                pos++;
+            }
+            return pos + 1;
         }
     }
 
     /**
-     * A simple record to hold station and temperature data.
+     * Station filter evaluated on the raw name bytes. Listed stations are kept as UTF-8 bytes in a
+     * small open-addressing set keyed on the same hash the cursor computes during its scan, so a
+     * lookup is a hash probe and, only on a hash hit, a byte comparison. Prefixes and names are wrapped
+     * in heap segments once, when the filter is built, so a row costs no allocation.
      */
-    private static class StationTemperature {
-        private final String station;
-        private final double temperature;
+    private static final class StationFilter {
+        private final MemorySegment[] prefixes;
+        private final MemorySegment[] names;
+        private final int[] hashes;
+
+        private StationFilter(MemorySegment[] prefixes, MemorySegment[] names, int[] hashes) {
+            this.prefixes = prefixes;
+            this.names = names;
+            this.hashes = hashes;
+        }
 
-        public StationTemperature(String station, double temperature) {
-            this.station = station;
-            this.temperature = temperature;
+        /**
+         * @return the filter, or null if there are neither stations nor prefixes
+         */
+        static StationFilter of(List<String> stations, List<String> prefixes) {
+            if (stations.isEmpty() && prefixes.isEmpty()) {
+                return null;
+            }
+            MemorySegment[] prefixBytes = prefixes.isEmpty() ? null : prefixes.stream()
+                    .map(prefix -> MemorySegment.ofArray(prefix.getBytes(StandardCharsets.UTF_8)))
+                    .toArray(MemorySegment[]::new);
+            if (stations.isEmpty()) {
+                return new StationFilter(prefixBytes, null, null);
+            }
+            int capacity = Integer.highestOneBit(Math.max(1, stations.size()) * 4);
+            byte[][] names = new byte[capacity][];
+            int[] hashes = new int[capacity];
+            for (String station : stations) {
+                byte[] name = station.getBytes(StandardCharsets.UTF_8);
+                int hash = 0;
+                for (byte b : name) {
+                    hash = 31 * hash + b;
+                }
+                int slot = hash & (capacity - 1);
+                while (names[slot] != null && !Arrays.equals(names[slot], name)) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                names[slot] = name;
+                hashes[slot] = hash;
+            }
+            MemorySegment[] nameSegments = Arrays.stream(names)
+                    .map(name -> name == null ? null : MemorySegment.ofArray(name))
+                    .toArray(MemorySegment[]::new);
+            return new StationFilter(prefixBytes, nameSegments, hashes);
         }
 
-        public String getStation() {
-            return station;
+        /**
+         * @return true if there are no prefixes or the line at {@code start} begins with one of them
+         */
+        boolean matchesPrefix(MemorySegment file, long start, long limit) {
+            if (prefixes == null) {
+                return true;
+            }
+            for (MemorySegment prefix : prefixes) {
+                long length = prefix.byteSize();
+                if (start + length <= limit
+                        && MemorySegment.mismatch(prefix, 0, length, file, start, start + length) == -1) {
+                    return true;
+                }
+            }
+            return false;
         }
 
-        public double getTemperature() {
-            return temperature;
+        /**
+         * @return true if no stations are listed or the name at {@code start} is one of them
+         */
+        boolean matchesStation(MemorySegment file, long start, int length, int hash) {
+            if (names == null) {
+                return true;
+            }
+            int mask = names.length - 1;
+            for (int slot = hash & mask; names[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && names[slot].byteSize() == length
+                        && MemorySegment.mismatch(names[slot], 0, length, file, start, start + length) == -1) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
     /**
-     * A helper class to calculate and store temperature statistics.
+     * Spliterator over the valid, matching lines in a byte range of the mapped file. Splits bisect
+     * the range and move the split point to the next newline, so every part holds whole lines.
      */
-    private static class TemperatureStats {
-        private double sum = 0;
-        private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
-        private long count = 0;
-
-        public void accept(StationTemperature record) {
-            double temp = record.getTemperature();
-            sum += temp;
-            min = Math.min(min, temp);
-            max = Math.max(max, temp);
-            count++;
-        }
-
-        public TemperatureStats combine(TemperatureStats other) {
-            sum += other.sum;
-            min = Math.min(min, other.min);
-            max = Math.max(max, other.max);
-            count += other.count;
+    private static final class RecordSpliterator implements Spliterator<RecordCursor> {
+        /** Ranges smaller than this are not split any further */
+        private static final long MIN_SPLIT = 1 << 20;
+
+        private final MemorySegment file;
+        private final StationFilter filter;
+        private final RecordCursor cursor;
+        private long pos;
+        private final long end;
+
+        RecordSpliterator(MemorySegment file, long start, long end, StationFilter filter) {
+            this.file = file;
+            this.filter = filter;
+            this.cursor = new RecordCursor(file, filter);
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super RecordCursor> action) {
+            while (pos < end) {
+                pos = cursor.moveTo(pos, end);
+                if (cursor.isValid()) {
+                    action.accept(cursor);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super RecordCursor> action) {
+            while (pos < end) {
+                pos = cursor.moveTo(pos, end);
+                if (cursor.isValid()) {
+                    action.accept(cursor);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<RecordCursor> trySplit() {
+            long remaining = end - pos;
+            if (remaining < MIN_SPLIT) {
+                return null;
+            }
+            long mid = pos + remaining / 2;
+            while (mid < end && file.get(ValueLayout.JAVA_BYTE, mid - 1) != '\n') {
+                mid++;
+            }
+            if (mid >= end) {
+                return null;
+            }
+            RecordSpliterator prefix = new RecordSpliterator(file, pos, mid, filter);
+            pos = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - pos;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Collector that aggregates fixed-point statistics into a {@link StatsTable} keyed on the
+     * station name bytes. The result map is only built in the finisher, once per station.
+     */
+    private static final class StationStatsCollector
+            implements Collector<RecordCursor, StatsTable, Map<String, TemperatureStats>> {
+
+        @Override
+        public Supplier<StatsTable> supplier() {
+            return StatsTable::new;
+        }
+
+        @Override
+        public BiConsumer<StatsTable, RecordCursor> accumulator() {
+            return StatsTable::accept;
+        }
+
+        @Override
+        public BinaryOperator<StatsTable> combiner() {
+            return StatsTable::combine;
+        }
+
+        @Override
+        public Function<StatsTable, Map<String, TemperatureStats>> finisher() {
+            return StatsTable::toMap;
+        }
+
+        @Override
+        public Set<Characteristics> characteristics() {
+            return EnumSet.of(Characteristics.UNORDERED);
+        }
+    }
+
+    /**
+     * Open-addressing table of station statistics held in primitive arrays.
+     */
+    private static final class StatsTable {
+        private byte[][] names = new byte[1024][];
+        private int[] hashes = new int[1024];
+        private int[] mins = new int[1024];
+        private int[] maxs = new int[1024];
+        private long[] sums = new long[1024];
+        private long[] counts = new long[1024];
+        private int size;
+
+        public void accept(RecordCursor cursor) {
+            int tenths = cursor.temperatureTenths();
+            if (tenths == Integer.MIN_VALUE) {
+                return; // Skip invalid lines
+            }
+            int slot = find(cursor);
+            if (names[slot] == null) {
+                byte[] name = new byte[cursor.nameLength()];
+                cursor.copyName(name);
+                slot = insert(name, cursor.nameHash());
+            }
+            add(slot, tenths, tenths, tenths, 1);
+        }
+
+        public StatsTable combine(StatsTable other) {
+            for (int i = 0; i < other.names.length; i++) {
+                if (other.names[i] != null) {
+                    int slot = find(other.names[i], other.hashes[i]);
+                    if (names[slot] == null) {
+                        slot = insert(other.names[i], other.hashes[i]);
+                    }
+                    add(slot, other.mins[i], other.maxs[i], other.sums[i], other.counts[i]);
+                }
+            }
             return this;
         }
 
+        public Map<String, TemperatureStats> toMap() {
+            Map<String, TemperatureStats> map = new HashMap<>(size * 2);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    map.put(new String(names[i], StandardCharsets.UTF_8),
+                            new TemperatureStats(mins[i], maxs[i], sums[i], counts[i]));
+                }
+            }
+            return map;
+        }
+
+        private void add(int slot, int min, int max, long sum, long count) {
+            if (counts[slot] == 0) {
+                mins[slot] = min;
+                maxs[slot] = max;
+            } else {
+                mins[slot] = Math.min(mins[slot], min);
+                maxs[slot] = Math.max(maxs[slot], max);
+            }
+            sums[slot] += sum;
+            counts[slot] += count;
+        }
+
+        private int find(RecordCursor cursor) {
+            int mask = names.length - 1;
+            int slot = cursor.nameHash() & mask;
+            while (names[slot] != null && !matches(slot, cursor)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private boolean matches(int slot, RecordCursor cursor) {
+            byte[] name = names[slot];
+            if (hashes[slot] != cursor.nameHash() || name.length != cursor.nameLength()) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (name[i] != cursor.nameByte(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int find(byte[] name, int hash) {
+            int mask = names.length - 1;
+            int slot = hash & mask;
+            while (names[slot] != null && (hashes[slot] != hash || !Arrays.equals(names[slot], name))) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int insert(byte[] name, int hash) {
+            if ((size + 1) * 2 > names.length) {
+                grow();
+            }
+            int slot = find(name, hash);
+            names[slot] = name;
+            hashes[slot] = hash;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            StatsTable old = new StatsTable();
+            old.names = names;
+            old.hashes = hashes;
+            old.mins = mins;
+            old.maxs = maxs;
+            old.sums = sums;
+            old.counts = counts;
+            int capacity = names.length * 2;
+            names = new byte[capacity][];
+            hashes = new int[capacity];
+            mins = new int[capacity];
+            maxs = new int[capacity];
+            sums = new long[capacity];
+            counts = new long[capacity];
+            size = 0;
+            combine(old);
+        }
+    }
+
+    /**
+     * A helper class to hold the final temperature statistics of one station.
+     * Values are kept in tenths of a degree.
+     */
+    private static class TemperatureStats {
+        private final int min;
+        private final int max;
+        private final long sum;
+        private final long count;
+
+        TemperatureStats(int min, int max, long sum, long count) {
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.count = count;
+        }
+
         public double getMin() {
-            return min;
+            return min / 10.0;
         }
 
         public double getMean() {
-            return sum / count;
+            return sum / 10.0 / count;
         }
 
         public double getMax() {
-            return max;
+            return max / 10.0;
         }
     }
 }
@@ -1,69 +1,87 @@
 package gemini;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * Processes a large text file containing weather station data and calculates
  * min, mean, and max temperatures per station.
+ * <p>
+ * Reading and parsing overlap: the calling thread acts as a dedicated I/O stage that
+ * reads the file through a {@link FileChannel} into a pool of reusable direct
+ * {@link ByteBuffer}s, while the parse workers aggregate the buffers already filled.
+ * Every buffer handed to a worker ends on a line boundary; the partial line after the
+ * last newline is carried over to the start of the next buffer.
+ * <p>
+ * With {@code --serve} the program stays resident: it aggregates the given files once and
+ * answers queries over HTTP on localhost (see {@link QueryDaemon}), so repeated queries pay
+ * neither JVM startup nor a file scan.
  * 
  * @author gemini
  */
 public class WeatherDataProcessor {
 
+    /** Size of each direct read buffer */
+    private static final int BUFFER_SIZE = 2 << 20;
+
+    /** Tells a worker that there are no more buffers */
+    private static final ByteBuffer END_OF_INPUT = ByteBuffer.allocate(0);
+
     /**
      * Main entry point.
      * 
-     * @param args The first argument should be the input file path.
+     * @param args The input file path, or {@code --serve [--port=N] <input_file>...} to run as a daemon.
      * @throws IOException If an I/O error occurs.
      */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            QueryDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         if (args.length != 1) {
             System.err.println("Usage: java gemini.WeatherDataProcessor <input_file>");
+            System.err.println("       java gemini.WeatherDataProcessor --serve [--port=N] <input_file>...");
             System.exit(1);
         }
 
         String inputFile = args[0];
 
-        // Use a ConcurrentHashMap to handle concurrent writes from multiple threads
-        Map<String, StationData> stationData = new ConcurrentHashMap<>();
-
-        // Create a thread pool to process the file in parallel
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.startsWith("#")) {
-                    String[] parts = line.split(";");
-                    String station = parts[0];
-                    double temperature = Double.parseDouble(parts[1]);
-
-                    // Use a lambda expression to submit tasks to the executor
-                    executor.submit(() -> {
-                        stationData.computeIfAbsent(station, s -> new StationData()).update(temperature);
-                    });
-                }
-            }
-        }
-
-        // Shutdown the executor and wait for all tasks to finish
-        executor.shutdown();
+        Map<String, StationData> stationData;
         try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
+            stationData = process(Path.of(inputFile), Runtime.getRuntime().availableProcessors());
+        } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
+            System.exit(1);
+            return;
         }
 
         // Sort the station data alphabetically and print the results
@@ -79,10 +97,399 @@ public class WeatherDataProcessor {
 
     }
 
+    /**
+     * Aggregates the file with one I/O stage (the calling thread) feeding a pool of parse workers.
+     *
+     * @param inputFile The file to process.
+     * @param workers   The number of parse workers.
+     * @return The statistics per station.
+     */
+    static Map<String, StationData> process(Path inputFile, int workers)
+            throws IOException, InterruptedException, ExecutionException {
+        // Two buffers per worker: one being parsed, one already filled and waiting
+        int bufferCount = workers * 2;
+        BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(bufferCount);
+        BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(bufferCount + workers);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            List<Future<Map<String, StationData>>> results = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                results.add(executor.submit(() -> parseBuffers(filled, free)));
+            }
+
+            byte[] carry = new byte[0];
+            int carryLength = 0;
+            boolean eof = false;
+            while (!eof) {
+                ByteBuffer buffer = takeFree(free, results);
+                buffer.clear();
+                if (carryLength > buffer.capacity() / 2) {
+                    // A line too long for the pooled buffers; give this one more room
+                    buffer = ByteBuffer.allocateDirect(carryLength * 2);
+                }
+                buffer.put(carry, 0, carryLength);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                buffer.flip();
+
+                // Hand over whole lines only; keep the partial last line for the next buffer
+                int end = buffer.limit();
+                if (!eof) {
+                    while (end > 0 && buffer.get(end - 1) != '\n') {
+                        end--;
+                    }
+                }
+                carryLength = buffer.limit() - end;
+                if (carry.length < carryLength) {
+                    carry = new byte[carryLength];
+                }
+                buffer.get(end, carry, 0, carryLength);
+                buffer.limit(end);
+                filled.put(buffer);
+            }
+            for (int i = 0; i < workers; i++) {
+                filled.put(END_OF_INPUT);
+            }
+
+            Map<String, StationData> stationData = new HashMap<>();
+            for (Future<Map<String, StationData>> result : results) {
+                result.get().forEach((station, stats) -> stationData.merge(station, stats, StationData::merge));
+            }
+            return stationData;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes a free buffer, checking that the workers are still alive while waiting.
+     */
+    private static ByteBuffer takeFree(BlockingQueue<ByteBuffer> free, List<Future<Map<String, StationData>>> results)
+            throws InterruptedException, ExecutionException {
+        ByteBuffer buffer;
+        while ((buffer = free.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            for (Future<Map<String, StationData>> result : results) {
+                if (result.isDone()) {
+                    result.get();
+                    throw new IllegalStateException("parse worker stopped before the end of the input");
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Worker loop: parses filled buffers into a private map and returns them to the pool.
+     */
+    private static Map<String, StationData> parseBuffers(BlockingQueue<ByteBuffer> filled, BlockingQueue<ByteBuffer> free)
+            throws InterruptedException {
+        Map<String, StationData> stationData = new HashMap<>();
+        byte[] name = new byte[256];
+        ByteBuffer buffer;
+        while ((buffer = filled.take()) != END_OF_INPUT) {
+            name = parse(buffer, stationData, name);
+            if (buffer.capacity() == BUFFER_SIZE) {
+                free.put(buffer);
+            } else {
+                // The pooled buffer this one replaced goes back to the pool
+                free.put(ByteBuffer.allocateDirect(BUFFER_SIZE));
+            }
+        }
+        return stationData;
+    }
+
+    /**
+     * Parses all lines between position 0 and the limit of the buffer.
+     *
+     * @return The (possibly grown) scratch array for station names.
+     */
+    private static byte[] parse(ByteBuffer buffer, Map<String, StationData> stationData, byte[] name) {
+        int limit = buffer.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int lineStart = pos;
+            int nameLength = 0;
+            byte b = 0;
+            while (pos < limit && (b = buffer.get(pos)) != ';' && b != '\n') {
+                if (nameLength == name.length) {
+                    name = Arrays.copyOf(name, nameLength * 2);
+                }
+                name[nameLength++] = b;
+                pos++;
+            }
+            int separator = pos;
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            int lineEnd = pos++;
+
+            if (separator == lineEnd || buffer.get(lineStart) == '#') {
+                continue;
+            }
+            double temperature = parseTemperature(buffer, separator + 1, lineEnd);
+            if (Double.isNaN(temperature)) {
+                continue;
+            }
+            String station = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+            stationData.computeIfAbsent(station, s -> new StationData()).update(temperature);
+        }
+        return name;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * Parses a decimal such as {@code -12.3} from the buffer. The digits are collected as an exact
+     * integer and divided once by a power of ten, which matches {@link Double#parseDouble(String)};
+     * other forms fall back to {@code Double.parseDouble}.
+     *
+     * @return The temperature, or NaN if the field is not a number.
+     */
+    private static double parseTemperature(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int pos = start;
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b >= '0' && b <= '9' && digits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                byte[] field = new byte[end - start];
+                buffer.get(start, field);
+                try {
+                    return Double.parseDouble(new String(field, StandardCharsets.UTF_8));
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Resident query daemon. The files are aggregated once into an immutable {@link Snapshot}
+     * with every answer preformatted, so a query is a map lookup. Endpoints (localhost only):
+     * <ul>
+     *     <li>{@code GET /stations} - all stations, formatted like the batch output</li>
+     *     <li>{@code GET /stations?prefix=Ab} - the stations whose name starts with the prefix</li>
+     *     <li>{@code GET /stations/<name>} - a single station, or 404</li>
+     *     <li>{@code POST /reload} - re-aggregates the files in the background; the current
+     *         snapshot keeps serving until the new one replaces it</li>
+     *     <li>{@code GET /status} - snapshot age, station count and reload state</li>
+     * </ul>
+     */
+    static final class QueryDaemon {
+
+        private static final int DEFAULT_PORT = 8089;
+
+        /**
+         * One complete aggregation of the input files.
+         *
+         * @param stations The formatted {@code min/mean/max} per station, sorted by name.
+         * @param all      The formatted answer for all stations.
+         * @param loadedAt The time the aggregation finished, in epoch milliseconds.
+         */
+        record Snapshot(NavigableMap<String, String> stations, String all, long loadedAt) {
+
+            static Snapshot of(Map<String, StationData> stationData) {
+                NavigableMap<String, String> stations = new TreeMap<>();
+                stationData.forEach((station, stats) -> stations.put(station, stats.toString()));
+                return new Snapshot(Collections.unmodifiableNavigableMap(stations), format(stations),
+                        System.currentTimeMillis());
+            }
+
+            String withPrefix(String prefix) {
+                NavigableMap<String, String> matching = new TreeMap<>();
+                for (Map.Entry<String, String> entry : stations.tailMap(prefix, true).entrySet()) {
+                    if (!entry.getKey().startsWith(prefix)) {
+                        break;
+                    }
+                    matching.put(entry.getKey(), entry.getValue());
+                }
+                return format(matching);
+            }
+
+            private static String format(Map<String, String> stations) {
+                return stations.entrySet().stream()
+                        .map(entry -> entry.getKey() + "=" + entry.getValue())
+                        .collect(Collectors.joining(", ", "{", "}"));
+            }
+        }
+
+        private final List<Path> inputFiles;
+        private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final AtomicBoolean reloading = new AtomicBoolean();
+        private volatile Snapshot snapshot;
+        private volatile String lastError;
+
+        QueryDaemon(List<Path> inputFiles) {
+            this.inputFiles = inputFiles;
+        }
+
+        static void main(String[] args) throws IOException {
+            int port = DEFAULT_PORT;
+            List<Path> inputFiles = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } else {
+                    inputFiles.add(Path.of(arg));
+                }
+            }
+            if (inputFiles.isEmpty()) {
+                System.err.println("Usage: java gemini.WeatherDataProcessor --serve [--port=N] <input_file>...");
+                System.exit(1);
+            }
+
+            QueryDaemon daemon = new QueryDaemon(inputFiles);
+            try {
+                daemon.snapshot = Snapshot.of(daemon.aggregate());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+
+            HttpServer server = daemon.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(0)));
+            System.err.println("Serving " + daemon.snapshot.stations().size() + " stations on http://"
+                    + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/stations");
+        }
+
+        HttpServer start(InetSocketAddress address) throws IOException {
+            HttpServer server = HttpServer.create(address, 0);
+            server.createContext("/stations", this::handleStations);
+            server.createContext("/reload", this::handleReload);
+            server.createContext("/status", this::handleStatus);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            return server;
+        }
+
+        private Map<String, StationData> aggregate() throws IOException, InterruptedException, ExecutionException {
+            int workers = Runtime.getRuntime().availableProcessors();
+            Map<String, StationData> stationData = new HashMap<>();
+            for (Path inputFile : inputFiles) {
+                process(inputFile, workers).forEach((station, stats) -> stationData.merge(station, stats, StationData::merge));
+            }
+            return stationData;
+        }
+
+        private void handleStations(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, "Use GET\n");
+                return;
+            }
+            Snapshot current = snapshot;
+            // getPath() decodes percent-escapes only; '+' is a literal character in a path
+            String path = exchange.getRequestURI().getPath();
+            String name = path.length() > "/stations/".length() ? path.substring("/stations/".length()) : null;
+            if (name != null) {
+                String stats = current.stations().get(name);
+                if (stats == null) {
+                    respond(exchange, 404, "Unknown station: " + name + "\n");
+                } else {
+                    respond(exchange, 200, name + "=" + stats + "\n");
+                }
+                return;
+            }
+            String prefix = queryParameter(exchange, "prefix");
+            respond(exchange, 200, (prefix == null ? current.all() : current.withPrefix(prefix)) + "\n");
+        }
+
+        private void handleReload(HttpExchange exchange) throws IOException {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "Use POST\n");
+                return;
+            }
+            if (!reloading.compareAndSet(false, true)) {
+                respond(exchange, 409, "Reload already in progress\n");
+                return;
+            }
+            reloader.execute(() -> {
+                try {
+                    snapshot = Snapshot.of(aggregate());
+                    lastError = null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // Keep serving the previous snapshot
+                    lastError = e.toString();
+                } finally {
+                    reloading.set(false);
+                }
+            });
+            respond(exchange, 202, "Reload started\n");
+        }
+
+        private void handleStatus(HttpExchange exchange) throws IOException {
+            Snapshot current = snapshot;
+            respond(exchange, 200, "stations=" + current.stations().size()
+                    + "\nloadedAt=" + Instant.ofEpochMilli(current.loadedAt())
+                    + "\nreloading=" + reloading.get()
+                    + (lastError == null ? "" : "\nlastError=" + lastError) + "\n");
+        }
+
+        private static String queryParameter(HttpExchange exchange, String name) {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query == null) {
+                return null;
+            }
+            for (String parameter : query.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                    return URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+                }
+            }
+            return null;
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
     /**
      * Represents the temperature data for a weather station.
      */
-    private static class StationData {
+    static class StationData {
         private double minTemp = Double.MAX_VALUE;
         private double maxTemp = Double.MIN_VALUE;
         private double sumTemp = 0;
@@ -95,6 +502,14 @@ public class WeatherDataProcessor {
             count++;
         }
 
+        public StationData merge(StationData other) {
+            minTemp = Math.min(minTemp, other.minTemp);
+            maxTemp = Math.max(maxTemp, other.maxTemp);
+            sumTemp += other.sumTemp;
+            count += other.count;
+            return this;
+        }
+
         @Override
         public String toString() {
             double meanTemp = count > 0 ? sumTemp / count : 0;
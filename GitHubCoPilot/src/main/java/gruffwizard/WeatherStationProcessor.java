@@ -1,10 +1,20 @@
-// Java version: 17
+// Java version: 22 (the columnar reader uses java.lang.foreign)
 
 package gruffwizard;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.DoubleAdder;
@@ -15,12 +25,41 @@ import java.util.stream.Collectors;
  * This program processes a large text file containing weather station data,
  * calculates the minimum, mean, and maximum temperature per station, and
  * prints the results in alphabetical order.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java WeatherStationProcessor &lt;input-file&gt;
+ *   java WeatherStationProcessor --convert &lt;input-file&gt; &lt;columnar-file&gt;
+ *   java WeatherStationProcessor --columnar &lt;columnar-file&gt;
+ * </pre>
+ * {@code --convert} parses the text file once and writes a binary columnar file (see
+ * {@link ColumnarFormat}): a station dictionary plus, per block, a station-id column and a
+ * fixed-point temperature column. {@code --columnar} aggregates directly over the mapped
+ * columns, so repeat queries skip text parsing and read about a third of the bytes.
  */
 public class WeatherStationProcessor {
 
     public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("--convert")) {
+            try {
+                ColumnarFormat.convert(Path.of(args[1]), Path.of(args[2]));
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--columnar")) {
+            try {
+                printResults(ColumnarFormat.aggregate(Path.of(args[1])));
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
         if (args.length != 1) {
-            System.err.println("Usage: java WeatherStationProcessor <input-file>");
+            System.err.println("Usage: java WeatherStationProcessor [--convert <input-file> <columnar-file> | --columnar <columnar-file> | <input-file>]");
             System.exit(1);
         }
 
@@ -43,6 +82,15 @@ public class WeatherStationProcessor {
             e.printStackTrace();
         }
 
+        printResults(stationStatsMap);
+    }
+
+    /**
+     * Prints the statistics sorted by station name.
+     *
+     * @param stationStatsMap the statistics per station
+     */
+    private static void printResults(Map<String, StationStats> stationStatsMap) {
         // Collect and print the results
         String result = stationStatsMap.entrySet().stream()
                 .sorted(Map.Entry.comparingByKey())
@@ -60,7 +108,20 @@ public class WeatherStationProcessor {
         private final DoubleAdder sum = new DoubleAdder();
         private final LongAdder count = new LongAdder();
         private double min = Double.MAX_VALUE;
-        private double max = Double.MIN_VALUE;
+        private double max = -Double.MAX_VALUE;
+
+        StationStats() {
+        }
+
+        /**
+         * Creates statistics from fixed-point aggregates in tenths of a degree.
+         */
+        StationStats(int minTenths, int maxTenths, long sumTenths, long count) {
+            this.min = minTenths / 10.0;
+            this.max = maxTenths / 10.0;
+            this.sum.add(sumTenths / 10.0);
+            this.count.add(count);
+        }
 
         /**
          * Adds a temperature reading to the statistics.
@@ -101,4 +162,257 @@ public class WeatherStationProcessor {
             return max;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Binary columnar file format and its converter and reader.
+     * <p>
+     * All values are little-endian and every section starts on an 8-byte boundary.
+     * <pre>
+     * header:  int magic, int version, long rowCount, long dictionaryOffset, int blockCount, int padding
+     * block:   int rows, int idWidth (2 or 4), station ids (rows x idWidth bytes),
+     *          temperatures in tenths of a degree (rows x short), padding
+     * footer:  int stationCount, then per station: short length, UTF-8 name bytes
+     * </pre>
+     * Each block stores ids as unsigned shorts when all of its ids fit, otherwise as ints.
+     */
+    static final class ColumnarFormat {
+        static final int MAGIC = 0x4C4F4357; // "WCOL"
+        static final int VERSION = 1;
+        static final int HEADER_SIZE = 32;
+        static final int BLOCK_HEADER_SIZE = 8;
+        static final int BLOCK_ROWS = 1 << 20;
+
+        private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+        private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.LITTLE_ENDIAN);
+        private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT.withOrder(ByteOrder.LITTLE_ENDIAN);
+        private static final ValueLayout.OfShort UNALIGNED_SHORT =
+                ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+        private ColumnarFormat() {
+        }
+
+        /**
+         * Converts a text measurement file to the columnar format.
+         *
+         * @param input  the text file
+         * @param output the columnar file to write
+         * @throws IOException if reading or writing fails, or a temperature does not fit the format
+         */
+        static void convert(Path input, Path output) throws IOException {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> names = new ArrayList<>();
+            int[] ids = new int[BLOCK_ROWS];
+            short[] temperatures = new short[BLOCK_ROWS];
+            int rows = 0;
+            long rowCount = 0;
+            int blockCount = 0;
+
+            try (BufferedReader reader = new BufferedReader(new FileReader(input.toFile()), 1 << 16);
+                 FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                out.position(HEADER_SIZE);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split(";");
+                    if (parts.length != 2) {
+                        continue;
+                    }
+                    long tenths = Math.round(Double.parseDouble(parts[1]) * 10);
+                    if (tenths < Short.MIN_VALUE || tenths > Short.MAX_VALUE) {
+                        throw new IOException("temperature out of range for the columnar format: " + line);
+                    }
+                    Integer id = dictionary.get(parts[0]);
+                    if (id == null) {
+                        id = names.size();
+                        dictionary.put(parts[0], id);
+                        names.add(parts[0]);
+                    }
+                    ids[rows] = id;
+                    temperatures[rows] = (short) tenths;
+                    if (++rows == BLOCK_ROWS) {
+                        writeBlock(out, ids, temperatures, rows);
+                        rowCount += rows;
+                        blockCount++;
+                        rows = 0;
+                    }
+                }
+                if (rows > 0) {
+                    writeBlock(out, ids, temperatures, rows);
+                    rowCount += rows;
+                    blockCount++;
+                }
+
+                long dictionaryOffset = out.position();
+                writeDictionary(out, names);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(rowCount).putLong(dictionaryOffset)
+                        .putInt(blockCount).putInt(0).flip();
+                writeFully(out, header, 0);
+            }
+        }
+
+        private static void writeBlock(FileChannel out, int[] ids, short[] temperatures, int rows) throws IOException {
+            int maxId = 0;
+            for (int i = 0; i < rows; i++) {
+                maxId = Math.max(maxId, ids[i]);
+            }
+            int idWidth = maxId <= 0xFFFF ? Short.BYTES : Integer.BYTES;
+            int size = align(BLOCK_HEADER_SIZE + rows * idWidth + rows * Short.BYTES);
+
+            ByteBuffer block = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            block.putInt(rows).putInt(idWidth);
+            for (int i = 0; i < rows; i++) {
+                if (idWidth == Short.BYTES) {
+                    block.putShort((short) ids[i]);
+                } else {
+                    block.putInt(ids[i]);
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                block.putShort(temperatures[i]);
+            }
+            block.position(0);
+            writeFully(out, block, out.position());
+            out.position(out.position() + size);
+        }
+
+        private static void writeDictionary(FileChannel out, List<String> names) throws IOException {
+            int size = Integer.BYTES;
+            List<byte[]> encoded = new ArrayList<>(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                size += Short.BYTES + bytes.length;
+            }
+            ByteBuffer dictionary = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            dictionary.putInt(names.size());
+            for (byte[] bytes : encoded) {
+                dictionary.putShort((short) bytes.length).put(bytes);
+            }
+            dictionary.flip();
+            writeFully(out, dictionary, out.position());
+        }
+
+        private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += out.write(buffer, position);
+            }
+        }
+
+        private static int align(int size) {
+            return (size + 7) & ~7;
+        }
+
+        /**
+         * Aggregates a columnar file. Blocks are processed in parallel, each worker accumulating into
+         * arrays indexed by station id; the arrays are merged and turned into statistics per station name.
+         *
+         * @param file the columnar file
+         * @return the statistics per station
+         * @throws IOException if the file cannot be read or is not a columnar file
+         */
+        static Map<String, StationStats> aggregate(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                 Arena arena = Arena.ofShared()) {
+                MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                if (data.byteSize() < HEADER_SIZE || data.get(INT, 0) != MAGIC || data.get(INT, 4) != VERSION) {
+                    throw new IOException("not a columnar weather file: " + file);
+                }
+                long dictionaryOffset = data.get(LONG, 16);
+                int blockCount = data.get(INT, 24);
+
+                String[] names = readDictionary(data, dictionaryOffset);
+
+                long[] blockOffsets = new long[blockCount];
+                long offset = HEADER_SIZE;
+                for (int b = 0; b < blockCount; b++) {
+                    blockOffsets[b] = offset;
+                    int rows = data.get(INT, offset);
+                    int idWidth = data.get(INT, offset + 4);
+                    offset += align(BLOCK_HEADER_SIZE + rows * idWidth + rows * Short.BYTES);
+                }
+
+                int stations = names.length;
+                Accumulator total = Arrays.stream(blockOffsets).parallel()
+                        .collect(() -> new Accumulator(stations),
+                                (acc, blockOffset) -> acc.addBlock(data, blockOffset),
+                                Accumulator::merge);
+
+                Map<String, StationStats> result = new HashMap<>();
+                for (int id = 0; id < stations; id++) {
+                    if (total.count[id] > 0) {
+                        result.put(names[id], new StationStats(total.min[id], total.max[id], total.sum[id], total.count[id]));
+                    }
+                }
+                return result;
+            }
+        }
+
+        private static String[] readDictionary(MemorySegment data, long offset) {
+            int count = data.get(INT, offset);
+            offset += Integer.BYTES;
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                int length = Short.toUnsignedInt(data.get(UNALIGNED_SHORT, offset));
+                offset += Short.BYTES;
+                byte[] bytes = data.asSlice(offset, length).toArray(ValueLayout.JAVA_BYTE);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+                offset += length;
+            }
+            return names;
+        }
+
+        /**
+         * Fixed-point statistics indexed by station id.
+         */
+        private static final class Accumulator {
+            final int[] min;
+            final int[] max;
+            final long[] sum;
+            final long[] count;
+
+            Accumulator(int stations) {
+                min = new int[stations];
+                max = new int[stations];
+                sum = new long[stations];
+                count = new long[stations];
+                Arrays.fill(min, Integer.MAX_VALUE);
+                Arrays.fill(max, Integer.MIN_VALUE);
+            }
+
+            void addBlock(MemorySegment data, long offset) {
+                int rows = data.get(INT, offset);
+                int idWidth = data.get(INT, offset + 4);
+                long ids = offset + BLOCK_HEADER_SIZE;
+                long temperatures = ids + (long) rows * idWidth;
+                for (int i = 0; i < rows; i++) {
+                    int id = idWidth == Short.BYTES
+                            ? Short.toUnsignedInt(data.get(SHORT, ids + (long) i * Short.BYTES))
+                            : data.get(INT, ids + (long) i * Integer.BYTES);
+                    int tenths = data.get(SHORT, temperatures + (long) i * Short.BYTES);
+                    if (tenths < min[id]) {
+                        min[id] = tenths;
+                    }
+                    if (tenths > max[id]) {
+                        max[id] = tenths;
+                    }
+                    sum[id] += tenths;
+                    count[id]++;
+                }
+            }
+
+            void merge(Accumulator other) {
+                for (int id = 0; id < count.length; id++) {
+                    min[id] = Math.min(min[id], other.min[id]);
+                    max[id] = Math.max(max[id], other.max[id]);
+                    sum[id] += other.sum[id];
+                    count[id] += other.count[id];
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,36 @@
-// Java version: 17
+// Java version: 22 (java.lang.foreign)
 package alex;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.TreeMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.ToDoubleFunction;
+import java.util.TreeSet;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Processes a large text file containing weather station data to calculate minimum, mean, and maximum temperatures.
+ * <p>
+ * The file is memory-mapped and split into newline-aligned ranges that are parsed in parallel. Each range is
+ * aggregated into an {@link OffHeapStationTable}, a hash table stored in a {@link MemorySegment} outside the
+ * Java heap, so the per-row work creates no garbage. The tables are merged, converted to {@link StationData}
+ * once per station for printing, and their memory is freed deterministically when their arenas are closed.
+ * <p>
+ * With {@code --sample <fraction>} only a random subset of fixed-size blocks is read, with positional reads,
+ * so the I/O and run time scale with the fraction rather than the file size; see {@link #sampleWeatherData}.
  */
 public class WeatherProcessor {
 
@@ -24,11 +41,27 @@ public class WeatherProcessor {
      * @throws IOException If an I/O error occurs.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.err.println("Usage: java WeatherProcessor <input_file>");
+        double fraction = 0;
+        long seed = System.nanoTime();
+        int next = 0;
+        if (args.length > 1 && args[0].equals("--sample")) {
+            fraction = Double.parseDouble(args[1]);
+            next = 2;
+            if (args.length > next && args[next].startsWith("--seed=")) {
+                seed = Long.parseLong(args[next++].substring("--seed=".length()));
+            }
+        }
+        if (args.length != next + 1 || (next > 0 && !(fraction > 0 && fraction <= 1))) {
+            System.err.println("Usage: java WeatherProcessor [--sample <fraction in (0, 1]> [--seed=N]] <input_file>");
             System.exit(1);
         }
 
+        if (next > 0) {
+            Map<String, SampleData> samples = sampleWeatherData(args[next], fraction, seed);
+            System.out.println(formatResults(samples));
+            return;
+        }
+
         String filePath = args[0];
         Map<String, StationData> stationData = processWeatherData(filePath);
         System.out.println(formatResults(stationData));
@@ -44,17 +77,215 @@ public class WeatherProcessor {
      * @throws IOException If an I/O error occurs.
      */
     private static Map<String, StationData> processWeatherData(String filePath) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            return reader.lines()
-                    .parallel() // Use parallel streams for better performance
-                    .filter(line -> !line.startsWith("#"))
-                    .map(line -> line.split(";"))
-                    .filter(parts -> parts.length == 2)
-                    .collect(Collectors.groupingByConcurrent(parts -> parts[0],
-                            Collectors.reducing(new StationData(),
-                                    parts -> new StationData(Double.parseDouble(parts[1])),
-                                    (s1, s2) -> s1.combine(s2))));
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+             Arena fileArena = Arena.ofShared()) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), fileArena);
+
+            List<long[]> ranges = splitRanges(file, Runtime.getRuntime().availableProcessors());
+            List<OffHeapStationTable> tables = ranges.parallelStream() // Use parallel streams for better performance
+                    .map(range -> {
+                        OffHeapStationTable table = new OffHeapStationTable();
+                        parseRange(file, range[0], range[1], table);
+                        return table;
+                    })
+                    .toList();
+
+            try (OffHeapStationTable result = new OffHeapStationTable()) {
+                for (OffHeapStationTable table : tables) {
+                    try (table) {
+                        result.mergeAll(table);
+                    }
+                }
+                return result.toMap();
+            }
+        }
+    }
+
+    /** Size of a sampling block; a block holds the lines that start inside it */
+    private static final int SAMPLE_BLOCK = 1 << 20;
+    /** Extra bytes read after a block to finish its last line */
+    private static final int LINE_OVERHANG = 1024;
+    /** Two-sided 95% quantile of the normal distribution */
+    private static final double Z_95 = 1.959964;
+
+    /**
+     * Estimates the statistics from a random sample of blocks. The file is cut into blocks of
+     * {@link #SAMPLE_BLOCK} bytes, {@code fraction} of them are picked without replacement, and each picked
+     * block is read with a positional read and parsed on its own. A block contributes the lines that start
+     * inside it, so every line belongs to exactly one block.
+     * <p>
+     * Rows of one block are not independent (files are often grouped by time or station), so the confidence
+     * interval treats blocks as clusters: the mean is a ratio estimator over the blocks and its variance comes
+     * from the spread of the per-block sums, with a finite population correction.
+     *
+     * @param filePath The path to the input file.
+     * @param fraction The fraction of blocks to read, in (0, 1].
+     * @param seed     The seed for picking blocks.
+     * @return The sampled statistics keyed by station name.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static Map<String, SampleData> sampleWeatherData(String filePath, double fraction, long seed)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long blocks = Math.max(1, (size + SAMPLE_BLOCK - 1) / SAMPLE_BLOCK);
+            long picked = Math.max(1, Math.min(blocks, Math.round(blocks * fraction)));
+
+            // Floyd's algorithm: a uniform sample without replacement in O(picked)
+            SplittableRandom random = new SplittableRandom(seed);
+            TreeSet<Long> sample = new TreeSet<>();
+            for (long j = blocks - picked; j < blocks; j++) {
+                long candidate = random.nextLong(j + 1);
+                sample.add(sample.contains(candidate) ? j : candidate);
+            }
+
+            Map<String, SampleData> result = sample.parallelStream()
+                    .map(block -> sampleBlock(channel, block * SAMPLE_BLOCK, size))
+                    .collect(Collector.of(HashMap::new, WeatherProcessor::addBlock, (a, b) -> {
+                        b.forEach((station, data) -> a.merge(station, data, SampleData::merge));
+                        return a;
+                    }));
+            double finiteCorrection = 1 - (double) picked / blocks;
+            result.values().forEach(data -> data.finish(picked, finiteCorrection));
+            System.err.printf("Sampled %d of %d blocks (%.1f%%); intervals are 95%% confidence intervals for the mean%n",
+                    picked, blocks, 100.0 * picked / blocks);
+            return result;
+        }
+    }
+
+    /**
+     * Reads one block plus enough of the next to finish its last line, and aggregates the lines that start
+     * inside the block.
+     */
+    private static Map<String, StationData> sampleBlock(FileChannel channel, long blockStart, long size) {
+        long readStart = Math.max(0, blockStart - 1);
+        long blockEnd = Math.min(size, blockStart + SAMPLE_BLOCK);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (Math.min(size, blockEnd + LINE_OVERHANG) - readStart));
+        try {
+            while (true) {
+                while (buffer.hasRemaining() && channel.read(buffer, readStart + buffer.position()) > 0) {
+                    // positional reads leave the channel position alone, so blocks can be read concurrently
+                }
+                MemorySegment data = MemorySegment.ofArray(buffer.array()).asSlice(0, buffer.position());
+                long end = blockEnd - readStart;
+                while (end > 0 && end < data.byteSize() && data.get(ValueLayout.JAVA_BYTE, end - 1) != '\n') {
+                    end++;
+                }
+                if (end < data.byteSize() || readStart + data.byteSize() >= size) {
+                    // The first line of the block starts after the first newline (unless the block starts the file)
+                    long start = blockStart - readStart;
+                    while (start > 0 && start < end && data.get(ValueLayout.JAVA_BYTE, start - 1) != '\n') {
+                        start++;
+                    }
+                    try (OffHeapStationTable table = new OffHeapStationTable()) {
+                        parseRange(data, start, end, table);
+                        return table.toMap();
+                    }
+                }
+                // A line longer than the overhang: read more
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addBlock(Map<String, SampleData> samples, Map<String, StationData> block) {
+        block.forEach((station, data) -> samples.computeIfAbsent(station, s -> new SampleData()).add(data));
+    }
 
+    /**
+     * Splits the file into roughly equal ranges that start at a line start and end just after a newline.
+     *
+     * @param file  The mapped file.
+     * @param parts The number of ranges wanted.
+     * @return The ranges as {start, end} pairs.
+     */
+    private static List<long[]> splitRanges(MemorySegment file, int parts) {
+        List<long[]> ranges = new ArrayList<>();
+        long size = file.byteSize();
+        long start = 0;
+        for (int i = 1; i <= parts && start < size; i++) {
+            long end = Math.max(start, size * i / parts);
+            while (end > 0 && end < size && file.get(ValueLayout.JAVA_BYTE, end - 1) != '\n') {
+                end++;
+            }
+            if (end > start) {
+                ranges.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Parses every line in [start, end) of the data and adds it to the table. Comment lines and lines
+     * without a single ';' are skipped.
+     *
+     * @param data  The bytes to parse.
+     * @param start The start of the first line.
+     * @param end   The end of the range (exclusive).
+     * @param table The table to aggregate into.
+     */
+    private static void parseRange(MemorySegment data, long start, long end, OffHeapStationTable table) {
+        long pos = start;
+        while (pos < end) {
+            long lineStart = pos;
+            int hash = 0;
+            byte b = 0;
+            while (pos < end && (b = data.get(ValueLayout.JAVA_BYTE, pos)) != ';' && b != '\n') {
+                hash = 31 * hash + b;
+                pos++;
+            }
+            long separator = pos;
+            while (pos < end && data.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+                pos++;
+            }
+            long lineEnd = pos++;
+
+            if (separator == lineEnd || (separator > lineStart && data.get(ValueLayout.JAVA_BYTE, lineStart) == '#')) {
+                continue;
+            }
+            int tenths = parseTenths(data, separator + 1, lineEnd);
+            if (tenths != Integer.MIN_VALUE) {
+                table.add(data, lineStart, (int) (separator - lineStart), hash, tenths);
+            }
+        }
+    }
+
+    /**
+     * Parses a temperature into tenths of a degree. The common form {@code -?d+.d} is decoded directly from
+     * the bytes; other forms go through {@link Double#parseDouble(String)}.
+     *
+     * @return The temperature in tenths, or {@link Integer#MIN_VALUE} if the field is not a number.
+     */
+    private static int parseTenths(MemorySegment data, long start, long end) {
+        if (end > start && data.get(ValueLayout.JAVA_BYTE, end - 1) == '\r') {
+            end--;
+        }
+        long pos = start;
+        boolean negative = pos < end && data.get(ValueLayout.JAVA_BYTE, pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        int value = 0;
+        int digits = 0;
+        byte b;
+        while (pos < end && (b = data.get(ValueLayout.JAVA_BYTE, pos)) >= '0' && b <= '9' && digits < 6) {
+            value = value * 10 + (b - '0');
+            digits++;
+            pos++;
+        }
+        if (digits > 0 && pos + 2 == end && data.get(ValueLayout.JAVA_BYTE, pos) == '.'
+                && (b = data.get(ValueLayout.JAVA_BYTE, pos + 1)) >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            return negative ? -value : value;
+        }
+        try {
+            byte[] field = data.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE);
+            return (int) Math.round(Double.parseDouble(new String(field, StandardCharsets.UTF_8)) * 10);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
         }
     }
 
@@ -64,52 +295,259 @@ public class WeatherProcessor {
      * @param stationData  The map of station names to their statistics.
      * @return A formatted string of the results.
      */
-    private static String formatResults(Map<String, StationData> stationData) {
+    private static String formatResults(Map<String, ?> stationData) {
         return new TreeMap<>(stationData).entrySet().stream()
                 .map(entry -> entry.getKey() + "=" + entry.getValue())
                 .collect(Collectors.joining(", "));
     }
 
 
+    /**
+     * Open-addressing hash table of station statistics stored off-heap in a {@link MemorySegment}.
+     * <p>
+     * Every slot has a fixed width and holds the name hash, the name length, fixed-point (tenths of a degree)
+     * min/max/sum/count and up to {@link #MAX_NAME} bytes of the station name; the rare longer names are kept in
+     * an on-heap map instead. The table owns a shared
+     * {@link Arena}; growing the table moves the slots to a new arena and closes the old one, and
+     * {@link #close()} frees the memory, so the table never involves the garbage collector.
+     */
+    private static final class OffHeapStationTable implements AutoCloseable {
+        /** Longest supported station name in bytes (the data set allows at most 100) */
+        private static final int MAX_NAME = 128;
+
+        private static final long HASH = 0;
+        private static final long LENGTH = 4;   // name length + 1, 0 marks an empty slot
+        private static final long MIN = 8;
+        private static final long MAX = 12;
+        private static final long SUM = 16;
+        private static final long COUNT = 24;
+        private static final long NAME = 32;
+        private static final long SLOT_SIZE = NAME + MAX_NAME;
+
+        /** Stations whose names do not fit in a slot */
+        private final Map<String, StationData> longNames = new HashMap<>();
+        private Arena arena;
+        private MemorySegment slots;
+        private int capacity;
+        private int size;
+
+        OffHeapStationTable() {
+            allocate(4096);
+        }
+
+        private void allocate(int newCapacity) {
+            arena = Arena.ofShared();
+            slots = arena.allocate(newCapacity * SLOT_SIZE, Long.BYTES); // zero-filled
+            capacity = newCapacity;
+            size = 0;
+        }
+
+        /**
+         * Adds one reading for the station whose name is {@code nameLength} bytes at {@code nameOffset} in {@code source}.
+         */
+        void add(MemorySegment source, long nameOffset, int nameLength, int hash, int tenths) {
+            merge(source, nameOffset, nameLength, hash, tenths, tenths, tenths, 1);
+        }
+
+        /**
+         * Merges a set of statistics into the slot of the given station, creating the slot if needed.
+         */
+        void merge(MemorySegment source, long nameOffset, int nameLength, int hash,
+                   int min, int max, long sum, long count) {
+            if (nameLength > MAX_NAME) {
+                byte[] name = source.asSlice(nameOffset, nameLength).toArray(ValueLayout.JAVA_BYTE);
+                longNames.merge(new String(name, StandardCharsets.UTF_8), new StationData(min, max, sum, count),
+                        StationData::merge);
+                return;
+            }
+            long mask = capacity - 1;
+            long index = mix(hash) & mask;
+            while (true) {
+                long base = index * SLOT_SIZE;
+                int length = slots.get(ValueLayout.JAVA_INT, base + LENGTH) - 1;
+                if (length < 0) {
+                    slots.set(ValueLayout.JAVA_INT, base + HASH, hash);
+                    slots.set(ValueLayout.JAVA_INT, base + LENGTH, nameLength + 1);
+                    slots.set(ValueLayout.JAVA_INT, base + MIN, min);
+                    slots.set(ValueLayout.JAVA_INT, base + MAX, max);
+                    slots.set(ValueLayout.JAVA_LONG, base + SUM, sum);
+                    slots.set(ValueLayout.JAVA_LONG, base + COUNT, count);
+                    MemorySegment.copy(source, nameOffset, slots, base + NAME, nameLength);
+                    if (++size * 2 > capacity) {
+                        grow();
+                    }
+                    return;
+                }
+                if (length == nameLength && slots.get(ValueLayout.JAVA_INT, base + HASH) == hash
+                        && MemorySegment.mismatch(source, nameOffset, nameOffset + nameLength,
+                                slots, base + NAME, base + NAME + nameLength) == -1) {
+                    slots.set(ValueLayout.JAVA_INT, base + MIN, Math.min(slots.get(ValueLayout.JAVA_INT, base + MIN), min));
+                    slots.set(ValueLayout.JAVA_INT, base + MAX, Math.max(slots.get(ValueLayout.JAVA_INT, base + MAX), max));
+                    slots.set(ValueLayout.JAVA_LONG, base + SUM, slots.get(ValueLayout.JAVA_LONG, base + SUM) + sum);
+                    slots.set(ValueLayout.JAVA_LONG, base + COUNT, slots.get(ValueLayout.JAVA_LONG, base + COUNT) + count);
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        /**
+         * Merges every station of another table into this one.
+         */
+        void mergeAll(OffHeapStationTable other) {
+            for (long i = 0; i < other.capacity; i++) {
+                long base = i * SLOT_SIZE;
+                int length = other.slots.get(ValueLayout.JAVA_INT, base + LENGTH) - 1;
+                if (length >= 0) {
+                    merge(other.slots, base + NAME, length,
+                            other.slots.get(ValueLayout.JAVA_INT, base + HASH),
+                            other.slots.get(ValueLayout.JAVA_INT, base + MIN),
+                            other.slots.get(ValueLayout.JAVA_INT, base + MAX),
+                            other.slots.get(ValueLayout.JAVA_LONG, base + SUM),
+                            other.slots.get(ValueLayout.JAVA_LONG, base + COUNT));
+                }
+            }
+            other.longNames.forEach((name, data) -> longNames.merge(name, data, StationData::merge));
+        }
+
+        private void grow() {
+            Arena oldArena = arena;
+            OffHeapStationTable old = new OffHeapStationTable(slots, capacity);
+            allocate(capacity * 2);
+            mergeAll(old);
+            oldArena.close();
+        }
+
+        private OffHeapStationTable(MemorySegment slots, int capacity) {
+            this.slots = slots;
+            this.capacity = capacity;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Copies the table onto the heap, one {@link StationData} per station.
+         *
+         * @return The statistics keyed by station name.
+         */
+        Map<String, StationData> toMap() {
+            Map<String, StationData> map = new HashMap<>(size * 2);
+            for (long i = 0; i < capacity; i++) {
+                long base = i * SLOT_SIZE;
+                int length = slots.get(ValueLayout.JAVA_INT, base + LENGTH) - 1;
+                if (length >= 0) {
+                    byte[] name = slots.asSlice(base + NAME, length).toArray(ValueLayout.JAVA_BYTE);
+                    map.put(new String(name, StandardCharsets.UTF_8), new StationData(
+                            slots.get(ValueLayout.JAVA_INT, base + MIN),
+                            slots.get(ValueLayout.JAVA_INT, base + MAX),
+                            slots.get(ValueLayout.JAVA_LONG, base + SUM),
+                            slots.get(ValueLayout.JAVA_LONG, base + COUNT)));
+                }
+            }
+            longNames.forEach((name, data) -> map.merge(name, data, StationData::merge));
+            return map;
+        }
+
+        @Override
+        public void close() {
+            arena.close();
+        }
+    }
+
+
     /**
      * Helper class to store the minimum, mean, and maximum temperatures for a weather station.
+     * Temperatures are held in tenths of a degree.
      */
     private static class StationData {
-        private double minTemp;
-        private double sumTemp;
-        private double maxTemp;
-        private AtomicInteger count = new AtomicInteger(0);
+        private final int minTemp;
+        private final int maxTemp;
+        private final long sumTemp;
+        private final long count;
 
-        public StationData() {
-            minTemp = Double.MAX_VALUE;
-            maxTemp = Double.MIN_VALUE;
-            sumTemp = 0;
+        public StationData(int minTemp, int maxTemp, long sumTemp, long count) {
+            this.minTemp = minTemp;
+            this.maxTemp = maxTemp;
+            this.sumTemp = sumTemp;
+            this.count = count;
         }
 
-        public StationData(double temp) {
-            this();
-            update(temp);
+        StationData merge(StationData other) {
+            return new StationData(Math.min(minTemp, other.minTemp), Math.max(maxTemp, other.maxTemp),
+                    sumTemp + other.sumTemp, count + other.count);
         }
 
-        public void update(double temp) {
-            minTemp = Math.min(minTemp, temp);
-            maxTemp = Math.max(maxTemp, temp);
-            sumTemp += temp;
-            count.incrementAndGet();
+        @Override
+        public String toString() {
+            return String.format("%.1f/%.1f/%.1f", minTemp / 10.0, sumTemp / 10.0 / count, maxTemp / 10.0);
         }
+    }
+
+
+    /**
+     * Statistics of a station over the sampled blocks, in tenths of a degree. Besides the totals it keeps the
+     * sums over blocks of {@code S*S}, {@code S*C} and {@code C*C}, where {@code S} and {@code C} are the sum
+     * and count of the station in one block, which is what the cluster variance of the mean needs.
+     */
+    private static class SampleData {
+        private int minTemp = Integer.MAX_VALUE;
+        private int maxTemp = Integer.MIN_VALUE;
+        private long sumTemp;
+        private long count;
+        private double sumSquares;
+        private double sumProducts;
+        private double countSquares;
+        private double halfWidth = Double.NaN;
 
+        void add(StationData block) {
+            minTemp = Math.min(minTemp, block.minTemp);
+            maxTemp = Math.max(maxTemp, block.maxTemp);
+            sumTemp += block.sumTemp;
+            count += block.count;
+            sumSquares += (double) block.sumTemp * block.sumTemp;
+            sumProducts += (double) block.sumTemp * block.count;
+            countSquares += (double) block.count * block.count;
+        }
 
-        public StationData combine(StationData other) {
-            this.minTemp = Math.min(this.minTemp, other.minTemp);
-            this.maxTemp = Math.max(this.maxTemp, other.maxTemp);
-            this.sumTemp += other.sumTemp;
-            this.count.addAndGet(other.count.get());
+        SampleData merge(SampleData other) {
+            minTemp = Math.min(minTemp, other.minTemp);
+            maxTemp = Math.max(maxTemp, other.maxTemp);
+            sumTemp += other.sumTemp;
+            count += other.count;
+            sumSquares += other.sumSquares;
+            sumProducts += other.sumProducts;
+            countSquares += other.countSquares;
             return this;
         }
 
+        /**
+         * Computes the half-width of the confidence interval. Blocks in which the station does not occur
+         * count as clusters with {@code S = C = 0}.
+         *
+         * @param blocks           The number of sampled blocks.
+         * @param finiteCorrection One minus the sampled fraction of blocks.
+         */
+        void finish(long blocks, double finiteCorrection) {
+            if (finiteCorrection == 0) {
+                // Every block was read: the mean is exact
+                halfWidth = 0;
+                return;
+            }
+            if (blocks < 2) {
+                return;
+            }
+            double mean = (double) sumTemp / count;
+            double residuals = Math.max(0, sumSquares - 2 * mean * sumProducts + mean * mean * countSquares);
+            double variance = finiteCorrection * blocks * residuals / ((blocks - 1) * (double) count * count);
+            halfWidth = Z_95 * Math.sqrt(variance) / 10.0;
+        }
+
         @Override
         public String toString() {
-            return String.format("%.1f/%.1f/%.1f", minTemp, sumTemp / count.get(), maxTemp);
+            return String.format("%.1f/%.1f/%.1f ±%.2f (n=%d)", minTemp / 10.0, sumTemp / 10.0 / count, maxTemp / 10.0,
+                    halfWidth, count);
         }
     }
 }
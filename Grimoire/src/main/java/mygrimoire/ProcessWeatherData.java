@@ -3,12 +3,27 @@ package mygrimoire;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,17 +33,45 @@ import java.util.stream.Stream;
  *
  * Requires Java 17 or higher.
  *
- * Usage: java mygrimoire.ProcessWeatherData <inputFilePath>
+ * Usage: java mygrimoire.ProcessWeatherData [--follow [--interval=millis]] <inputFilePath>
+ *
+ * With --follow the program keeps running after the first result: it remembers the byte
+ * offset of the last complete line it processed together with the per-station statistics,
+ * waits for the file to grow (WatchService, with a polling interval as fallback), aggregates
+ * only the appended lines and prints the refreshed result. The file is processed again from
+ * the start when it has been replaced (its file key changed, e.g. by a rename over it; the new
+ * file is reopened), when it has shrunk, or when the last bytes already consumed no longer
+ * match (it was truncated and has grown past the offset since).
  */
 public class ProcessWeatherData {
 
+    /** Appended ranges larger than this are split and aggregated in parallel */
+    private static final long SPLIT_SIZE = 8 << 20;
+    /** Bytes before the offset that are compared to tell appending from rewriting */
+    private static final int CHECK_SIZE = 64;
+    private static final String USAGE =
+            "Usage: java mygrimoire.ProcessWeatherData [--follow [--interval=millis]] <inputFilePath>";
+
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Usage: java mygrimoire.ProcessWeatherData <inputFilePath>");
+        boolean follow = false;
+        long interval = 1000;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--follow")) {
+                follow = true;
+            } else if (args[i].startsWith("--interval=")) {
+                interval = Long.parseLong(args[i].substring("--interval=".length()));
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        }
+        if (args.length < 1 || args[args.length - 1].startsWith("--")) {
+            System.err.println(USAGE);
             System.exit(1);
         }
 
-        String inputFilePath = args[0];
+        String inputFilePath = args[args.length - 1];
         Path filePath = Paths.get(inputFilePath);
 
         if (!Files.exists(filePath) || !Files.isReadable(filePath)) {
@@ -36,6 +79,18 @@ public class ProcessWeatherData {
             System.exit(1);
         }
 
+        if (follow) {
+            try {
+                follow(filePath, interval);
+            } catch (IOException e) {
+                System.err.println("Error processing file: " + e.getMessage());
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
         try (Stream<String> lines = Files.lines(filePath)) {
             Map<String, DoubleSummaryStatistics> statistics = lines
                     .parallel()
@@ -47,15 +102,7 @@ public class ProcessWeatherData {
                             Collectors.summarizingDouble(parts -> Double.parseDouble(parts[1].trim()))
                     ));
 
-            TreeMap<String, String> sortedResults = statistics.entrySet().stream()
-                    .collect(Collectors.toMap(
-                            Map.Entry::getKey,
-                            entry -> formatStatistics(entry.getValue()),
-                            (a, b) -> a,
-                            TreeMap::new
-                    ));
-
-            System.out.println(sortedResults);
+            printResults(statistics);
 
         } catch (IOException e) {
             System.err.println("Error processing file: " + e.getMessage());
@@ -63,6 +110,189 @@ public class ProcessWeatherData {
         }
     }
 
+    /**
+     * Prints the statistics sorted by station name.
+     *
+     * @param statistics The statistics per station.
+     */
+    private static void printResults(Map<String, DoubleSummaryStatistics> statistics) {
+        TreeMap<String, String> sortedResults = statistics.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry -> formatStatistics(entry.getValue()),
+                        (a, b) -> a,
+                        TreeMap::new
+                ));
+
+        System.out.println(sortedResults);
+    }
+
+    /**
+     * Processes the file and then keeps processing whatever is appended to it.
+     * Only complete lines are consumed; a partially written last line is picked
+     * up on the next refresh.
+     *
+     * @param filePath The file to follow.
+     * @param interval Maximum time in milliseconds to wait between checks for new data.
+     * @throws IOException          If the file cannot be read or watched.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private static void follow(Path filePath, long interval) throws IOException, InterruptedException {
+        Map<String, DoubleSummaryStatistics> statistics = new HashMap<>();
+        long offset = 0;
+        byte[] consumed = new byte[0];
+
+        Path directory = filePath.toAbsolutePath().getParent();
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            // Taken before opening, so a replacement in between is seen on the first check
+            Object fileKey = fileKey(filePath);
+            FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+            try {
+                while (true) {
+                    Object currentKey = fileKey(filePath);
+                    boolean replaced = currentKey != null && !currentKey.equals(fileKey);
+                    if (replaced) {
+                        FileChannel reopened = FileChannel.open(filePath, StandardOpenOption.READ);
+                        channel.close();
+                        channel = reopened;
+                        fileKey = currentKey;
+                    }
+                    long size = channel.size();
+                    if (replaced || size < offset
+                            || !Arrays.equals(consumed, read(channel, offset - consumed.length, offset))) {
+                        // The file was replaced or rewritten: start again
+                        statistics.clear();
+                        offset = 0;
+                        consumed = new byte[0];
+                    }
+                    long end = lastLineEnd(channel, offset, size);
+                    if (end > offset) {
+                        aggregate(channel, offset, end).forEach((station, stats) ->
+                                statistics.computeIfAbsent(station, k -> new DoubleSummaryStatistics()).combine(stats));
+                        offset = end;
+                        consumed = read(channel, Math.max(0, end - CHECK_SIZE), end);
+                        printResults(statistics);
+                    }
+
+                    // Wait for a change to the directory, or poll again after the interval
+                    WatchKey key = watcher.poll(interval, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * @return The key identifying the file the path currently names, or null if the file is
+     *         missing (e.g. between an unlink and a rename) or the platform has no file keys.
+     */
+    private static Object fileKey(Path filePath) throws IOException {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line in the range [from, to).
+     *
+     * @return The position just after the last newline, or {@code from} if there is none.
+     */
+    private static long lastLineEnd(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long pos = to;
+        while (pos > from) {
+            int length = (int) Math.min(buffer.capacity(), pos - from);
+            buffer.clear().limit(length);
+            channel.read(buffer, pos - length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return pos - length + i + 1;
+                }
+            }
+            pos -= length;
+        }
+        return from;
+    }
+
+    /**
+     * Aggregates the complete lines in [from, to). Large ranges are cut at newlines
+     * into parts that are aggregated in parallel and combined.
+     *
+     * @return The statistics per station for the range.
+     */
+    private static Map<String, DoubleSummaryStatistics> aggregate(FileChannel channel, long from, long to)
+            throws IOException {
+        List<long[]> parts = new ArrayList<>();
+        long start = from;
+        while (start < to) {
+            long end = start + SPLIT_SIZE >= to ? to : lastLineEnd(channel, start, start + SPLIT_SIZE);
+            if (end == start) {
+                // A single line longer than the split size
+                end = Math.min(to, lastLineEnd(channel, start, to));
+            }
+            parts.add(new long[]{start, end});
+            start = end;
+        }
+
+        return parts.parallelStream()
+                .map(part -> {
+                    try {
+                        return aggregatePart(channel, part[0], part[1]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .collect(HashMap::new, ProcessWeatherData::combineInto, ProcessWeatherData::combineInto);
+    }
+
+    /**
+     * Adds the statistics of one part to the running totals, in place.
+     */
+    private static void combineInto(Map<String, DoubleSummaryStatistics> totals,
+                                    Map<String, DoubleSummaryStatistics> part) {
+        part.forEach((station, stats) -> totals.merge(station, stats, (x, y) -> {
+            x.combine(y);
+            return x;
+        }));
+    }
+
+    /**
+     * Aggregates the lines in [from, to), which must start at a line start and end after a newline.
+     */
+    private static Map<String, DoubleSummaryStatistics> aggregatePart(FileChannel channel, long from, long to)
+            throws IOException {
+        String text = new String(read(channel, from, to), StandardCharsets.UTF_8);
+        return text.lines()
+                .filter(line -> !line.startsWith("#")) // Ignore comments
+                .map(line -> line.split(";"))
+                .filter(parts -> parts.length == 2)
+                .collect(Collectors.groupingBy(
+                        parts -> parts[0].trim(),
+                        Collectors.summarizingDouble(parts -> Double.parseDouble(parts[1].trim()))
+                ));
+    }
+
+    /**
+     * Reads the bytes in [from, to), or fewer if the file ends first.
+     */
+    private static byte[] read(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+    }
+
     /**
      * Formats the statistics into the required output format.
      *
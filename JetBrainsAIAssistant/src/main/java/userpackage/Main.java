@@ -1,54 +1,90 @@
 // Java 23
 package userpackage;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.StructuredTaskScope;
 import java.util.stream.Collectors;
 
 /**
  * Program to process a large text file, compute min, mean, and max temperature
  * per weather station, and print results alphabetically.
  *
- * Usage: java userpackage.Main input_file_name
+ * The file is split into newline-aligned segments and each segment is aggregated
+ * into its own map; the maps are merged at the end. Two execution modes are
+ * available so they can be compared on the same machine:
+ * <ul>
+ *     <li>{@code pool} (default): one task per segment on a fixed pool of platform threads.</li>
+ *     <li>{@code structured}: one virtual thread per segment, forked and joined in a
+ *     {@link StructuredTaskScope}. A failing segment cancels the others and its
+ *     exception is rethrown.</li>
+ * </ul>
+ *
+ * Usage: java --enable-preview userpackage.Main [--mode=pool|structured] [--segments=N] input_file_name
  */
 public class Main {
 
+    private static final String USAGE =
+            "Usage: java userpackage.Main [--mode=pool|structured] [--segments=N] <input_file_name>";
+
     /**
      * Entry point of the program.
      *
-     * @param args Command-line arguments (input file name is the first argument).
+     * @param args Command-line arguments (options, followed by the input file name).
      */
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Usage: java userpackage.Main <input_file_name>");
-            System.exit(1);
+        if (args.length < 1 || args[args.length - 1].startsWith("--")) {
+            usage(null);
         }
 
-        String fileName = args[0];
-        Map<String, TemperatureStats> weatherStationData = new ConcurrentHashMap<>();
+        String fileName = args[args.length - 1];
         int availableProcessors = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(availableProcessors);
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            reader.lines()
-                  .filter(line -> !line.startsWith("#") && !line.isBlank()) // Filter out comments and empty lines
-                  .map(Main::parseLine)
-                  .filter(Objects::nonNull)
-                  .forEach(record -> executor.submit(() -> processRecord(record, weatherStationData)));
-
-            executor.shutdown();
-            while (!executor.isTerminated()) {
-                // Wait for all tasks to complete
+        String mode = "pool";
+        int segmentCount = availableProcessors;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--mode=pool") || args[i].equals("--mode=structured")) {
+                mode = args[i].substring("--mode=".length());
+            } else if (args[i].startsWith("--segments=")) {
+                try {
+                    segmentCount = Math.max(1, Integer.parseInt(args[i].substring("--segments=".length())));
+                } catch (NumberFormatException e) {
+                    usage("Invalid option: " + args[i]);
+                }
+            } else {
+                usage((args[i].startsWith("--mode=") ? "Unknown mode: " : "Unknown option: ") + args[i]);
             }
+        }
 
+        Map<String, TemperatureStats> weatherStationData = new HashMap<>();
+        try {
+            List<long[]> segments = segments(Path.of(fileName), segmentCount);
+            List<Map<String, TemperatureStats>> partials = switch (mode) {
+                case "pool" -> runOnPool(fileName, segments, availableProcessors);
+                case "structured" -> runStructured(fileName, segments);
+                default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+            };
+            for (Map<String, TemperatureStats> partial : partials) {
+                partial.forEach((station, stats) -> weatherStationData.merge(station, stats, TemperatureStats::merge));
+            }
         } catch (IOException e) {
             System.err.println("Error reading the file: " + e.getMessage());
             System.exit(2);
+        } catch (ExecutionException e) {
+            System.err.println("Error processing the file: " + e.getCause());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while processing the file");
+            System.exit(2);
         }
 
         // Sort the results alphabetically and display the output
@@ -59,6 +95,165 @@ public class Main {
         System.out.println("{" + result + "}");
     }
 
+    /**
+     * Prints the reason, if any, and the usage text, and exits with status 1.
+     */
+    private static void usage(String reason) {
+        if (reason != null) {
+            System.err.println(reason);
+        }
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    /**
+     * Process every segment as a task on a fixed pool of platform threads and wait
+     * for all of them without spinning.
+     *
+     * @param fileName The input file.
+     * @param segments The segments to process.
+     * @param threads  The pool size.
+     * @return One map of statistics per segment.
+     */
+    private static List<Map<String, TemperatureStats>> runOnPool(String fileName, List<long[]> segments, int threads)
+            throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<String, TemperatureStats>>> futures = new ArrayList<>();
+            for (long[] segment : segments) {
+                futures.add(executor.submit(() -> processSegment(fileName, segment[0], segment[1])));
+            }
+            List<Map<String, TemperatureStats>> partials = new ArrayList<>();
+            for (Future<Map<String, TemperatureStats>> future : futures) {
+                partials.add(future.get());
+            }
+            return partials;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fork one virtual thread per segment inside a structured task scope. The scope
+     * shuts down on the first failure, which cancels the remaining segments, and
+     * join() blocks until all forks have completed.
+     *
+     * @param fileName The input file.
+     * @param segments The segments to process.
+     * @return One map of statistics per segment.
+     */
+    private static List<Map<String, TemperatureStats>> runStructured(String fileName, List<long[]> segments)
+            throws InterruptedException, ExecutionException {
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            List<StructuredTaskScope.Subtask<Map<String, TemperatureStats>>> subtasks = new ArrayList<>();
+            for (long[] segment : segments) {
+                subtasks.add(scope.fork(() -> processSegment(fileName, segment[0], segment[1])));
+            }
+            scope.join().throwIfFailed();
+
+            List<Map<String, TemperatureStats>> partials = new ArrayList<>();
+            for (StructuredTaskScope.Subtask<Map<String, TemperatureStats>> subtask : subtasks) {
+                partials.add(subtask.get());
+            }
+            return partials;
+        }
+    }
+
+    /**
+     * Split the file into byte ranges that start at the beginning of a line and
+     * end just after a newline (or at the end of the file).
+     *
+     * @param file  The input file.
+     * @param count The desired number of segments.
+     * @return The segments as {start, end} pairs.
+     * @throws IOException If the file cannot be read.
+     */
+    private static List<long[]> segments(Path file, int count) throws IOException {
+        List<long[]> segments = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            long start = 0;
+            for (int i = 1; i <= count && start < size; i++) {
+                long end = Math.max(start, size * i / count);
+                // Move the split point to just after the next newline
+                while (end > 0 && end < size) {
+                    buffer.clear();
+                    channel.read(buffer, end - 1);
+                    if (buffer.get(0) == '\n') {
+                        break;
+                    }
+                    end++;
+                }
+                if (end > start) {
+                    segments.add(new long[]{start, end});
+                    start = end;
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Aggregate all lines in the byte range [start, end) of the file into a private map.
+     *
+     * @param fileName The input file.
+     * @param start    The first byte of the segment.
+     * @param end      The end of the segment (exclusive).
+     * @return The statistics for this segment.
+     * @throws IOException If the file cannot be read.
+     */
+    private static Map<String, TemperatureStats> processSegment(String fileName, long start, long end) throws IOException {
+        Map<String, TemperatureStats> stats = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            byte[] block = new byte[1 << 20];
+            int carry = 0;
+            long pos = start;
+            while (pos < end) {
+                if (carry == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(block, carry, (int) Math.min(block.length - carry, end - pos)), pos);
+                if (read < 0) {
+                    break;
+                }
+                pos += read;
+                int limit = carry + read;
+
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (block[i] == '\n') {
+                        processLine(new String(block, lineStart, i - lineStart, StandardCharsets.UTF_8), stats);
+                        lineStart = i + 1;
+                    }
+                }
+                carry = limit - lineStart;
+                System.arraycopy(block, lineStart, block, 0, carry);
+            }
+            if (carry > 0) {
+                // Last line without a trailing newline
+                processLine(new String(block, 0, carry, StandardCharsets.UTF_8), stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Filter, parse and aggregate a single line.
+     *
+     * @param line  A single line of input.
+     * @param stats The segment's statistics map.
+     */
+    private static void processLine(String line, Map<String, TemperatureStats> stats) {
+        if (line.startsWith("#") || line.isBlank()) { // Filter out comments and empty lines
+            return;
+        }
+        StationRecord record = parseLine(line);
+        if (record != null) {
+            processRecord(record, stats);
+        }
+    }
+
     /**
      * Parse a line from the input file into a StationRecord.
      *
@@ -83,14 +278,7 @@ public class Main {
      * @param weatherStationData The map of weather stations and their temperature statistics.
      */
     private static void processRecord(StationRecord record, Map<String, TemperatureStats> weatherStationData) {
-        weatherStationData.compute(record.station,
-                (key, stats) -> {
-                    if (stats == null) {
-                        stats = new TemperatureStats();
-                    }
-                    stats.add(record.temperature);
-                    return stats;
-                });
+        weatherStationData.computeIfAbsent(record.station, key -> new TemperatureStats()).add(record.temperature);
     }
 
     /**
@@ -115,15 +303,25 @@ public class Main {
         private double sum = 0.0;
         private long count = 0;
 
-        public synchronized void add(double temperature) {
+        // Each instance is confined to one segment task until the final merge,
+        // so no synchronisation is needed (and virtual threads are never pinned)
+        public void add(double temperature) {
             min = Math.min(min, temperature);
             max = Math.max(max, temperature);
             sum += temperature;
             count++;
         }
 
+        public TemperatureStats merge(TemperatureStats other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            return this;
+        }
+
         @Override
-        public synchronized String toString() {
+        public String toString() {
             double mean = count > 0 ? sum / count : 0.0;
             return String.format("%.1f/%.1f/%.1f", min, mean, max);
         }
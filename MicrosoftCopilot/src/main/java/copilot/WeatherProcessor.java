@@ -3,11 +3,11 @@ package copilot;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * Java version: 17
@@ -32,7 +32,11 @@ public class WeatherProcessor {
                     String station = parts[0];
                     double temperature = Double.parseDouble(parts[1]);
                     
-                    weatherData.computeIfAbsent(station, k -> new TemperatureStats()).updateStats(temperature);
+                    TemperatureStats stats = weatherData.get(station);
+                    if (stats == null) {
+                        stats = weatherData.computeIfAbsent(station, k -> new TemperatureStats());
+                    }
+                    stats.updateStats(temperature);
                 }
             });
         } catch (IOException e) {
@@ -49,28 +53,92 @@ public class WeatherProcessor {
     }
 }
 
+/**
+ * Lock-free, allocation-free statistics cell for one station.
+ * Temperatures are kept as fixed-point tenths of a degree. The cell is striped across
+ * several slots, one cache-line-padded group of longs per slot, and each thread updates
+ * the slot picked by its thread id, so concurrent updates to a hot station rarely touch
+ * the same cache line. Min and max are packed into one long and updated with a VarHandle
+ * CAS loop; sum and count use atomic getAndAdd. The slots are combined when read.
+ */
 class TemperatureStats {
-    private double min = Double.MAX_VALUE;
-    private double max = Double.MIN_VALUE;
-    private final DoubleAdder sum = new DoubleAdder();
-    private final AtomicInteger count = new AtomicInteger();
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /** Number of longs per slot: 128 bytes, so two slots never share a (prefetched) cache line */
+    private static final int STRIDE = 16;
+    private static final int MIN_MAX = 0;
+    private static final int SUM = 1;
+    private static final int COUNT = 2;
+
+    private static final int STRIPES =
+            Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+    private static final long EMPTY = pack(Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+    private final long[] slots = new long[STRIPES * STRIDE];
+
+    TemperatureStats() {
+        for (int i = 0; i < STRIPES; i++) {
+            slots[i * STRIDE + MIN_MAX] = EMPTY;
+        }
+    }
 
     public void updateStats(double temperature) {
-        min = Math.min(min, temperature);
-        max = Math.max(max, temperature);
-        sum.add(temperature);
-        count.incrementAndGet();
+        int tenths = (int) Math.round(temperature * 10);
+        int base = slot() * STRIDE;
+
+        long current = (long) LONGS.getOpaque(slots, base + MIN_MAX);
+        while (tenths < min(current) || tenths > max(current)) {
+            long updated = pack(Math.min(min(current), tenths), Math.max(max(current), tenths));
+            long witness = (long) LONGS.compareAndExchange(slots, base + MIN_MAX, current, updated);
+            if (witness == current) {
+                break;
+            }
+            current = witness;
+        }
+        LONGS.getAndAdd(slots, base + SUM, (long) tenths);
+        LONGS.getAndAdd(slots, base + COUNT, 1L);
     }
 
     public double getMin() {
-        return min;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < STRIPES; i++) {
+            min = Math.min(min, min((long) LONGS.getVolatile(slots, i * STRIDE + MIN_MAX)));
+        }
+        return min / 10.0;
     }
 
     public double getMax() {
-        return max;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < STRIPES; i++) {
+            max = Math.max(max, max((long) LONGS.getVolatile(slots, i * STRIDE + MIN_MAX)));
+        }
+        return max / 10.0;
     }
 
     public double getMean() {
-        return sum.sum() / count.get();
+        long sum = 0;
+        long count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += (long) LONGS.getVolatile(slots, i * STRIDE + SUM);
+            count += (long) LONGS.getVolatile(slots, i * STRIDE + COUNT);
+        }
+        return sum / 10.0 / count;
+    }
+
+    private static int slot() {
+        // Spread thread ids over the stripes
+        return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 58) & (STRIPES - 1);
+    }
+
+    private static long pack(int min, int max) {
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    private static int min(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    private static int max(long packed) {
+        return (int) packed;
     }
 }
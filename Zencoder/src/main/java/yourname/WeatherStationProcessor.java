@@ -1,50 +1,108 @@
 // Java version: 17
 package yourname;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.DoubleAdder;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A program to process a large text file containing weather station data and calculate
  * the minimum, mean, and maximum temperatures for each station.
+ * <p>
+ * With {@code --percentiles} the output is extended to {@code min/mean/max/p50/p95/p99}. Percentiles
+ * are exact: temperatures have one decimal in -99.9..99.9, so each station keeps a fixed histogram of
+ * 1999 buckets (one per tenth of a degree) that is updated in the same pass. Readings outside that
+ * range are kept as values next to the histogram and their number is reported on stderr. Every worker
+ * thread has its own 8 KB histogram per station it has seen, so memory grows with stations times
+ * threads (10,000 stations on 32 threads is about 2.5 GB) but not with the number of rows.
+ * <p>
+ * Any number of inputs may be given: files, directories (all regular files below them) and globs
+ * such as {@code data/2024-*.txt} or {@code 'data/**.txt'}. All inputs are scheduled together:
+ * large files are split at line boundaries and small files are batched, so that every work unit is
+ * about the same size, and all units feed one merged aggregation.
  */
 public class WeatherStationProcessor {
 
+    /** Work units are never smaller than this, so small inputs are not over-split */
+    private static final long MIN_UNIT_SIZE = 1 << 20;
+    /** Work units are never larger than this, which bounds the memory each worker holds at once */
+    private static final long MAX_UNIT_SIZE = 16 << 20;
+    /** Units per worker: enough to even out files of different sizes */
+    private static final int UNITS_PER_WORKER = 8;
+
+    /**
+     * A newline-aligned byte range {@code [start, end)} of one file.
+     */
+    private record Piece(Path file, long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
     /**
      * Main method to execute the program.
      *
-     * @param args Command-line arguments, where the first argument is the input file name.
+     * @param args Command-line arguments: an optional {@code --percentiles} followed by one or more
+     *             files, directories or globs.
      */
     public static void main(String[] args) {
-        if (args.length < 1) {
-            System.err.println("Please provide the input file name as the first argument.");
+        boolean percentiles = args.length > 0 && args[0].equals("--percentiles");
+        List<String> inputs = List.of(args).subList(percentiles ? 1 : 0, args.length);
+        if (inputs.isEmpty()) {
+            System.err.println("Please provide one or more input files, directories or globs.");
             System.exit(1);
         }
 
-        String fileName = args[0];
-        Map<String, TemperatureStats> stationStats = new ConcurrentHashMap<>();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            reader.lines().parallel().forEach(line -> {
-                if (!line.startsWith("#")) {
-                    String[] parts = line.split(";");
-                    if (parts.length == 2) {
-                        String station = parts[0];
-                        double temperature = Double.parseDouble(parts[1]);
+        // Each worker thread aggregates into its own map; the partials are merged at the end
+        Queue<Map<String, TemperatureStats>> partials = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Map<String, TemperatureStats>> workerStats = ThreadLocal.withInitial(() -> {
+            Map<String, TemperatureStats> partial = new HashMap<>();
+            partials.add(partial);
+            return partial;
+        });
 
-                        stationStats.computeIfAbsent(station, k -> new TemperatureStats())
-                                .update(temperature);
-                    }
+        try {
+            List<Path> files = expand(inputs);
+            if (files.isEmpty()) {
+                System.err.println("No input files to process.");
+                System.exit(1);
+            }
+            List<List<Piece>> units = plan(files, ForkJoinPool.commonPool().getParallelism() + 1);
+            units.parallelStream().forEach(unit -> {
+                Map<String, TemperatureStats> partial = workerStats.get();
+                for (Piece piece : unit) {
+                    read(piece).lines().forEach(line -> parseLine(line, partial, percentiles));
                 }
             });
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
+            System.exit(1);
+        }
+
+        Map<String, TemperatureStats> stationStats = new HashMap<>();
+        for (Map<String, TemperatureStats> partial : partials) {
+            partial.forEach((station, stats) -> stationStats.merge(station, stats, TemperatureStats::merge));
+        }
+        long outliers = stationStats.values().stream().mapToLong(stats -> stats.outlierCount).sum();
+        if (outliers > 0) {
+            System.err.println(outliers + " readings were outside -99.9..99.9; the percentiles include them exactly");
         }
 
         String result = stationStats.entrySet().stream()
@@ -55,32 +113,283 @@ public class WeatherStationProcessor {
         System.out.println(result);
     }
 
+    private static void parseLine(String line, Map<String, TemperatureStats> stats, boolean percentiles) {
+        if (!line.startsWith("#")) {
+            String[] parts = line.split(";");
+            if (parts.length == 2) {
+                String station = parts[0];
+                double temperature = Double.parseDouble(parts[1]);
+
+                stats.computeIfAbsent(station, k -> new TemperatureStats(percentiles)).update(temperature);
+            }
+        }
+    }
+
+    /**
+     * Resolves the command-line inputs to a sorted list of distinct regular files. A directory stands
+     * for every regular file below it; an input containing glob characters is matched against the
+     * files below its longest glob-free leading directory, descending only as deep as the glob has
+     * components unless it contains {@code **}. Files are compared by their real path, so
+     * a file named by several inputs is processed once.
+     *
+     * @param inputs The files, directories and globs.
+     * @return The files to process.
+     * @throws IOException If a directory cannot be listed or an input does not exist.
+     */
+    static List<Path> expand(List<String> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            int glob = indexOfGlob(input);
+            if (glob < 0) {
+                Path path = Path.of(input);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(Files::isRegularFile).map(WeatherStationProcessor::realPath).forEach(files::add);
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path.toRealPath());
+                } else {
+                    throw new IOException("No such file or directory: " + input);
+                }
+                continue;
+            }
+
+            int separator = input.lastIndexOf('/', glob);
+            Path base = separator < 0 ? Path.of("") : Path.of(input.substring(0, separator + 1));
+            PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + input);
+            // A relative glob without a directory part is matched against paths relative to "."
+            Path root = separator < 0 ? Path.of(".") : base;
+            // Without "**" the glob spans a fixed number of path components below its base
+            int depth = input.contains("**") ? Integer.MAX_VALUE
+                    : (int) input.substring(separator + 1).chars().filter(c -> c == '/').count() + 1;
+            List<Path> matches = List.of();
+            if (Files.isDirectory(root)) {
+                try (Stream<Path> walk = Files.walk(root, depth)) {
+                    matches = walk.map(path -> separator < 0 ? root.relativize(path) : path)
+                            .filter(path -> matcher.matches(path) && Files.isRegularFile(path))
+                            .map(WeatherStationProcessor::realPath)
+                            .toList();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            files.addAll(matches);
+            if (matches.isEmpty()) {
+                System.err.println("No files match " + input);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int indexOfGlob(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Divides the files into work units of roughly equal size: files larger than a unit are split
+     * at line boundaries, and consecutive small files are batched into one unit.
+     *
+     * @param files   The files to process.
+     * @param workers The number of threads that will process the units.
+     * @return The work units, each a list of pieces processed in order by one worker.
+     * @throws IOException If a file cannot be read.
+     */
+    static List<List<Piece>> plan(List<Path> files, int workers) throws IOException {
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        long unitSize = Math.max(MIN_UNIT_SIZE, Math.min(MAX_UNIT_SIZE, total / ((long) workers * UNITS_PER_WORKER)));
+
+        List<List<Piece>> units = new ArrayList<>();
+        List<Piece> batch = new ArrayList<>();
+        long batchSize = 0;
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long start = 0;
+                while (start < size) {
+                    long end = size - start <= unitSize ? size : nextLineStart(channel, start + unitSize);
+                    Piece piece = new Piece(file, start, end);
+                    start = end;
+                    if (piece.length() >= unitSize) {
+                        units.add(List.of(piece));
+                        continue;
+                    }
+                    batch.add(piece);
+                    batchSize += piece.length();
+                    if (batchSize >= unitSize) {
+                        units.add(batch);
+                        batch = new ArrayList<>();
+                        batchSize = 0;
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            units.add(batch);
+        }
+        return units;
+    }
+
+    /**
+     * @return The position just after the first newline at or after {@code position}, or the file size.
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Reads a piece and decodes it as UTF-8. Pieces end on line boundaries, so no line is cut.
+     */
+    private static String read(Piece piece) {
+        try (FileChannel channel = FileChannel.open(piece.file(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(piece.length()));
+            while (buffer.hasRemaining() && channel.read(buffer, piece.start() + buffer.position()) > 0) {
+                // keep reading until the piece is complete
+            }
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * A helper class to maintain temperature statistics for a weather station.
+     * Instances are confined to one worker thread until they are merged.
      */
     private static class TemperatureStats {
+        /** Lowest temperature with its own bucket, in tenths of a degree */
+        private static final int MIN_TENTHS = -999;
+        /** One bucket per tenth of a degree in -99.9..99.9 */
+        private static final int BUCKETS = 1999;
+
         private double min = Double.MAX_VALUE;
         private double max = Double.MIN_VALUE;
-        private DoubleAdder sum = new DoubleAdder();
-        private LongAdder count = new LongAdder();
+        private double sum;
+        private long count;
+        private final int[] histogram;
+        /** Readings that have no bucket, kept as values so that percentiles stay exact */
+        private double[] outliers = new double[0];
+        private int outlierCount;
+
+        TemperatureStats(boolean withHistogram) {
+            histogram = withHistogram ? new int[BUCKETS] : null;
+        }
 
         /**
          * Update the statistics with a new temperature reading.
          *
          * @param temperature The new temperature reading.
          */
-        public synchronized void update(double temperature) {
+        public void update(double temperature) {
             min = Math.min(min, temperature);
             max = Math.max(max, temperature);
-            sum.add(temperature);
-            count.increment();
+            sum += temperature;
+            count++;
+            if (histogram != null) {
+                int bucket = (int) Math.round(temperature * 10) - MIN_TENTHS;
+                if (bucket >= 0 && bucket < BUCKETS) {
+                    histogram[bucket]++;
+                } else {
+                    addOutliers(new double[]{temperature}, 1);
+                }
+            }
+        }
+
+        /**
+         * Merge another worker's statistics into this one. Histograms are merged by an
+         * element-wise add, a simple loop the JIT compiles to vector instructions.
+         *
+         * @param other The statistics to merge.
+         * @return This instance.
+         */
+        public TemperatureStats merge(TemperatureStats other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            if (histogram != null) {
+                int[] add = other.histogram;
+                for (int i = 0; i < BUCKETS; i++) {
+                    histogram[i] += add[i];
+                }
+                addOutliers(other.outliers, other.outlierCount);
+            }
+            return this;
+        }
+
+        private void addOutliers(double[] values, int length) {
+            if (outlierCount + length > outliers.length) {
+                outliers = Arrays.copyOf(outliers, Math.max(2 * outliers.length, outlierCount + length));
+            }
+            System.arraycopy(values, 0, outliers, outlierCount, length);
+            outlierCount += length;
+        }
+
+        /**
+         * Exact percentile (nearest rank) from the histogram.
+         *
+         * @param p The percentile, between 0 and 1.
+         * @return The smallest temperature such that at least {@code p} of the readings are at or below it.
+         */
+        public double percentile(double p) {
+            // Outliers below the histogram rank first, those above it last
+            Arrays.sort(outliers, 0, outlierCount);
+            int below = 0;
+            while (below < outlierCount && outliers[below] < 0) {
+                below++;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            if (rank <= below) {
+                return outliers[(int) rank - 1];
+            }
+            long seen = below;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return (i + MIN_TENTHS) / 10.0;
+                }
+            }
+            return outliers[(int) (below + rank - seen - 1)];
         }
 
         @Override
         public String toString() {
-            double mean = sum.doubleValue() / count.doubleValue();
-            return String.format("%.1f/%.1f/%.1f", min, mean, max);
+            double mean = sum / count;
+            if (histogram == null) {
+                return String.format("%.1f/%.1f/%.1f", min, mean, max);
+            }
+            return String.format("%.1f/%.1f/%.1f/%.1f/%.1f/%.1f", min, mean, max,
+                    percentile(0.50), percentile(0.95), percentile(0.99));
         }
     }
 }
-